@@ -0,0 +1,87 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.os.Debug;
+import android.util.Log;
+
+/**
+ * Counts object allocations made on the drawing thread between {@link #beginFrame()} and
+ * {@link #endFrame()}. Only active in debug builds; in release builds both calls return
+ * immediately. The counts are shown on the debug overlay and a frame that allocates is
+ * reported to logcat, so a regression in the allocation-free draw path shows up while testing
+ * rather than as GC jank on the wrist.
+ * <p>
+ * The Debug allocation counters are deprecated without a replacement: they are the only
+ * per-thread count the runtime has, and they still work on ART in debuggable builds. Hence the
+ * suppressed warnings.
+ */
+@SuppressWarnings("deprecation")
+final class AllocationTracker {
+    private static final String TAG = "AllocationTracker";
+
+    /* Only every Nth allocating frame is logged, so a regression does not flood logcat. */
+    private static final int REPORT_INTERVAL = 100;
+
+    private final boolean mEnabled;
+    private int mFrameCount;
+    private int mAllocatingFrameCount;
+    private int mLastFrameAllocations;
+    private int mMaxFrameAllocations;
+
+    AllocationTracker(boolean enabled) {
+        mEnabled = enabled;
+        if (mEnabled) {
+            Debug.startAllocCounting();
+        }
+    }
+
+    void beginFrame() {
+        if (!mEnabled) {
+            return;
+        }
+        Debug.resetThreadAllocCount();
+    }
+
+    void endFrame() {
+        if (!mEnabled) {
+            return;
+        }
+        int allocations = Debug.getThreadAllocCount();
+        mFrameCount++;
+        mLastFrameAllocations = allocations;
+        if (allocations > 0) {
+            mAllocatingFrameCount++;
+            mMaxFrameAllocations = Math.max(mMaxFrameAllocations, allocations);
+            if (mAllocatingFrameCount % REPORT_INTERVAL == 1) {
+                Log.w(TAG, "Frame allocated " + allocations + " objects; "
+                        + mAllocatingFrameCount + " of " + mFrameCount + " frames allocated, max "
+                        + mMaxFrameAllocations + ".");
+            }
+        }
+    }
+
+    void release() {
+        if (mEnabled) {
+            Debug.stopAllocCounting();
+        }
+    }
+
+    boolean isEnabled() {
+        return mEnabled;
+    }
+
+    int getFrameCount() {
+        return mFrameCount;
+    }
+
+    int getAllocatingFrameCount() {
+        return mAllocatingFrameCount;
+    }
+
+    int getLastFrameAllocations() {
+        return mLastFrameAllocations;
+    }
+
+    int getMaxFrameAllocations() {
+        return mMaxFrameAllocations;
+    }
+}
@@ -0,0 +1,99 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.graphics.Bitmap;
+
+/**
+ * Keeps ambient frames under a lit-pixel budget. Every ambient frame is measured with
+ * {@link LitPixels}; when one goes over, the engine moves down a level and leaves out more of
+ * the face, until the frames fit or only the hands are left. The level holds until
+ * {@link #reset()}, so the face doesn't flip between levels from minute to minute.
+ */
+final class AmbientPowerBudget {
+    static final int LEVEL_FULL = 0;
+    /* Black instead of the gray background. */
+    static final int LEVEL_NO_BACKGROUND = 1;
+    /* Complications are left out too. */
+    static final int LEVEL_NO_COMPLICATIONS = 2;
+    /* Ticks and numerals are left out too, leaving the hands and the time text. */
+    static final int LEVEL_HANDS_ONLY = 3;
+
+    private final float mBudgetRatio;
+    private int[] mRow = new int[0];
+    private int mLevel = LEVEL_FULL;
+    private float mLastRatio;
+    private float mMaxRatio;
+    private int mMeasuredFrames;
+    private int mOverBudgetFrames;
+
+    AmbientPowerBudget(float budgetRatio) {
+        mBudgetRatio = budgetRatio;
+    }
+
+    /*
+     * Measures a rendered ambient frame and returns its estimated lit-pixel ratio. Only the rows
+     * LitPixels samples are read back, one at a time, so this runs on the tick path without a
+     * full-screen readback or a frame-sized pixel array.
+     */
+    float measure(Bitmap frame) {
+        int width = frame.getWidth();
+        int rows = LitPixels.sampleRowCount(frame.getHeight());
+        if (mRow.length < width) {
+            mRow = new int[width];
+        }
+        int lit = 0;
+        for (int i = 0; i < rows; i++) {
+            frame.getPixels(mRow, 0, width, 0, LitPixels.sampleRow(i), width, 1);
+            lit += LitPixels.count(mRow, 0, width);
+        }
+        mLastRatio = (width * rows == 0) ? 0f : (float) lit / (width * rows);
+        mMaxRatio = Math.max(mMaxRatio, mLastRatio);
+        mMeasuredFrames++;
+        if (mLastRatio > mBudgetRatio) {
+            mOverBudgetFrames++;
+        }
+        return mLastRatio;
+    }
+
+    boolean isOverBudget() {
+        return mLastRatio > mBudgetRatio;
+    }
+
+    /* Moves down one level; returns false if there is nothing left to leave out. */
+    boolean degrade() {
+        if (mLevel == LEVEL_HANDS_ONLY) {
+            return false;
+        }
+        mLevel++;
+        return true;
+    }
+
+    /* Back to the full face, e.g. after the surface or device properties changed. */
+    void reset() {
+        mLevel = LEVEL_FULL;
+        mLastRatio = 0f;
+    }
+
+    int getLevel() {
+        return mLevel;
+    }
+
+    float getBudgetRatio() {
+        return mBudgetRatio;
+    }
+
+    float getLastRatio() {
+        return mLastRatio;
+    }
+
+    float getMaxRatio() {
+        return mMaxRatio;
+    }
+
+    int getMeasuredFrames() {
+        return mMeasuredFrames;
+    }
+
+    int getOverBudgetFrames() {
+        return mOverBudgetFrames;
+    }
+}
@@ -0,0 +1,166 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+
+/**
+ * Decodes the bitmaps that the first frame can do without on a background thread, so the
+ * engine draws its first frame as soon as the background is there. The decoding is
+ * {@link BitmapAssets}' own, run on a private instance that the loader thread alone touches.
+ * Each bitmap is handed to the main thread as it is ready, and the engine leaves the asset
+ * out of the frame until then.
+ * <p>
+ * {@link #cancel()} drops every request made before it, queued or in progress. Their bitmaps
+ * are recycled instead of delivered, e.g. once the surface size changed.
+ */
+final class AssetLoader implements Handler.Callback {
+    /** Called on the main thread with a decoded bitmap, which the listener then owns. */
+    interface Listener {
+        void onAssetLoaded(int slot, Bitmap bitmap);
+    }
+
+    private static final int MSG_DECODE_EXACT = 0;
+    private static final int MSG_DECODE_SCALED = 1;
+    private static final int MSG_LOADED = 2;
+
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper(), this);
+    private final Listener mListener;
+
+    /* Loader thread state. */
+    private final BitmapAssets mDecoder;
+
+    /* Main thread state. */
+    private int mGeneration;
+    private int mPending;
+    private boolean mReleased;
+
+    /* Written on the loader thread, read after release(). */
+    private long mDecodeNanos;
+    private int mDecodeCount;
+
+    private static final class Request {
+        final int generation;
+        final int slot;
+        final int resId;
+        final int variantResId;
+        final float scale;
+        final Bitmap.Config config;
+
+        Request(int generation, int slot, int resId, int variantResId, float scale, Bitmap.Config config) {
+            this.generation = generation;
+            this.slot = slot;
+            this.resId = resId;
+            this.variantResId = variantResId;
+            this.scale = scale;
+            this.config = config;
+        }
+    }
+
+    AssetLoader(Resources resources, Listener listener) {
+        mListener = listener;
+        /* Bitmaps only pass through it; the engine's BitmapAssets accounts for them. */
+        mDecoder = new BitmapAssets(resources, Long.MAX_VALUE);
+        mThread = new HandlerThread("AssetLoader", Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper(), this);
+    }
+
+    /* See BitmapAssets.decodeExact(). */
+    void requestExact(int slot, int resId, Bitmap.Config config) {
+        request(MSG_DECODE_EXACT, new Request(mGeneration, slot, resId, 0, 1f, config));
+    }
+
+    /* See BitmapAssets.decode(int, int, int, float, Bitmap.Config). */
+    void requestScaled(int slot, int resId, int variantResId, float scale, Bitmap.Config config) {
+        request(MSG_DECODE_SCALED, new Request(mGeneration, slot, resId, variantResId, scale, config));
+    }
+
+    void cancel() {
+        mGeneration++;
+        mHandler.removeMessages(MSG_DECODE_EXACT);
+        mHandler.removeMessages(MSG_DECODE_SCALED);
+        mPending = 0;
+    }
+
+    /* Main thread: whether a request made since the last cancel() is still outstanding. */
+    boolean isLoading() {
+        return mPending > 0;
+    }
+
+    /* Stops the loader thread, waiting for a decode in progress. */
+    void release() {
+        cancel();
+        mReleased = true;
+        mThread.quitSafely();
+        try {
+            mThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mDecoder.release();
+    }
+
+    long getAverageDecodeNanos() {
+        return (mDecodeCount == 0) ? 0 : mDecodeNanos / mDecodeCount;
+    }
+
+    int getDecodeCount() {
+        return mDecodeCount;
+    }
+
+    private void request(int what, Request request) {
+        mPending++;
+        mHandler.obtainMessage(what, request).sendToTarget();
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_DECODE_EXACT:
+            case MSG_DECODE_SCALED:
+                decode(msg.what, (Request) msg.obj);
+                return true;
+            case MSG_LOADED:
+                deliver(msg.arg1, msg.arg2, (Bitmap) msg.obj);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /* Loader thread. */
+    private void decode(int what, Request request) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        if (what == MSG_DECODE_EXACT) {
+            mDecoder.decodeExact(request.slot, request.resId, request.config);
+        } else {
+            mDecoder.decode(request.slot, request.resId, request.variantResId, request.scale, request.config);
+        }
+        Bitmap bitmap = mDecoder.take(request.slot);
+        mDecodeNanos += SystemClock.elapsedRealtimeNanos() - start;
+        mDecodeCount++;
+        mMainHandler.obtainMessage(MSG_LOADED, request.generation, request.slot, bitmap).sendToTarget();
+    }
+
+    /* Main thread. */
+    private void deliver(int generation, int slot, Bitmap bitmap) {
+        if (mReleased || generation != mGeneration) {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            return;
+        }
+        mPending--;
+        if (bitmap != null) {
+            mListener.onAssetLoaded(slot, bitmap);
+        }
+    }
+}
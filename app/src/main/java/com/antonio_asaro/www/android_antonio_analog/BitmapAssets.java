@@ -0,0 +1,238 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.util.Log;
+
+/**
+ * Owns every bitmap the engine keeps, in numbered slots, and accounts for their memory against a
+ * budget. Resources are decoded straight to the size they are drawn at, using inSampleSize for
+ * the coarse step and the density pair for the exact one, so nothing is rescaled afterwards.
+ * Asking for a slot again at the same size and config returns the bitmap already there; any
+ * other size recycles it first, so surface and mode changes never leak the previous bitmaps.
+ * <p>
+ * For the screen widths listed in the build's generateAssetVariants task, pre-scaled and
+ * pre-filtered variants of the resources exist; see {@link #findVariant}.
+ */
+final class BitmapAssets {
+    private static final String TAG = "BitmapAssets";
+
+    static final int BACKGROUND = 0;
+    static final int GRAY_BACKGROUND = 1;
+    static final int LOW_BIT_BACKGROUND = 2;
+    static final int MARVIN = 3;
+    static final int EARTH = 4;
+    static final int COMET = 5;
+    static final int SATURN = 6;
+    static final int DISCONNECT = 7;
+    static final int FRAME = 8;
+    static final int PREPARED_AMBIENT_FRAME = 9;
+    /* One dial layer per dial mode follows. */
+    static final int DIAL_LAYER = 10;
+    static final int SLOT_COUNT = DIAL_LAYER + 3;
+
+    private final Resources mResources;
+    private final long mBudgetBytes;
+    private final Bitmap[] mBitmaps = new Bitmap[SLOT_COUNT];
+    private final BitmapFactory.Options mOptions = new BitmapFactory.Options();
+    private int[] mVariantWidths;
+    private boolean mReportedOverBudget;
+
+    BitmapAssets(Resources resources, long budgetBytes) {
+        mResources = resources;
+        mBudgetBytes = budgetBytes;
+    }
+
+    Bitmap get(int slot) {
+        return mBitmaps[slot];
+    }
+
+    /* Index of the generated variants for a surface width, or -1 when the build made none. */
+    int findVariant(int width) {
+        if (mVariantWidths == null) {
+            mVariantWidths = mResources.getIntArray(R.array.asset_variant_widths);
+        }
+        for (int i = 0; i < mVariantWidths.length; i++) {
+            if (mVariantWidths[i] == width) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /* The drawable at a variant index of one of the generated R.array.*_variants arrays. */
+    int getVariantResource(int variantsId, int variant) {
+        TypedArray variants = mResources.obtainTypedArray(variantsId);
+        int resId = variants.getResourceId(variant, 0);
+        variants.recycle();
+        return resId;
+    }
+
+    /*
+     * Decodes a resource into a slot at its own size, for variants that are already scaled. A
+     * grayscale png decoded as ALPHA_8 keeps its gray levels as the alpha channel.
+     */
+    Bitmap decodeExact(int slot, int resId, Bitmap.Config config) {
+        decodeBounds(resId);
+        return decode(slot, resId, mOptions.outWidth, mOptions.outHeight, config);
+    }
+
+    /* Decodes a resource into a slot at targetWidth pixels wide, keeping its aspect ratio. */
+    Bitmap decode(int slot, int resId, int targetWidth, Bitmap.Config config) {
+        decodeBounds(resId);
+        int targetHeight = Math.max(1, Math.round((float) mOptions.outHeight * targetWidth / mOptions.outWidth));
+        return decode(slot, resId, targetWidth, targetHeight, config);
+    }
+
+    /*
+     * Decodes a resource into a slot at scale times its size in pixels, ignoring its density
+     * bucket. A variant resource other than 0 is taken instead if it has exactly that size,
+     * which spares the resampling; it doesn't when the device density differs from the one the
+     * variant was generated for.
+     */
+    Bitmap decode(int slot, int resId, int variantResId, float scale, Bitmap.Config config) {
+        decodeBounds(resId);
+        int targetWidth = Math.max(1, Math.round(mOptions.outWidth * scale));
+        int targetHeight = Math.max(1, Math.round(mOptions.outHeight * scale));
+        if (variantResId != 0) {
+            decodeBounds(variantResId);
+            if (mOptions.outWidth == targetWidth && mOptions.outHeight == targetHeight) {
+                return decode(slot, variantResId, targetWidth, targetHeight, config);
+            }
+            decodeBounds(resId);
+        }
+        return decode(slot, resId, targetWidth, targetHeight, config);
+    }
+
+    private void decodeBounds(int resId) {
+        mOptions.inJustDecodeBounds = true;
+        mOptions.inScaled = false;
+        mOptions.inSampleSize = 1;
+        BitmapFactory.decodeResource(mResources, resId, mOptions);
+    }
+
+    /* Expects the resource's bounds in mOptions. */
+    private Bitmap decode(int slot, int resId, int targetWidth, int targetHeight, Bitmap.Config config) {
+        Bitmap current = mBitmaps[slot];
+        if (current != null && current.getWidth() == targetWidth && current.getHeight() == targetHeight
+                && current.getConfig() == config) {
+            return current;
+        }
+        recycle(slot);
+
+        /* Subsample by powers of two while the result stays at least as large as the target. */
+        int sourceWidth = mOptions.outWidth;
+        int sampleSize = 1;
+        while (sourceWidth / (sampleSize * 2) >= targetWidth) {
+            sampleSize *= 2;
+        }
+        mOptions.inJustDecodeBounds = false;
+        mOptions.inSampleSize = sampleSize;
+        mOptions.inScaled = true;
+        mOptions.inDensity = sourceWidth / sampleSize;
+        mOptions.inTargetDensity = targetWidth;
+        mOptions.inPreferredConfig = config;
+        return put(slot, BitmapFactory.decodeResource(mResources, resId, mOptions));
+    }
+
+    /* Returns a cleared bitmap in the slot, reusing the current one if it already fits. */
+    Bitmap create(int slot, int width, int height, Bitmap.Config config) {
+        Bitmap current = mBitmaps[slot];
+        if (current != null && current.getWidth() == width && current.getHeight() == height
+                && current.getConfig() == config) {
+            current.eraseColor(Color.TRANSPARENT);
+            return current;
+        }
+        recycle(slot);
+        return put(slot, Bitmap.createBitmap(width, height, config));
+    }
+
+    /*
+     * Stores the luminance of the source slot as an ALPHA_8 bitmap in the target slot, a quarter
+     * of the size of a colour copy. Draw it in white over black to get the gray image back. Only
+     * for screens without a generated gray variant.
+     */
+    Bitmap createLuminance(int slot, int sourceSlot) {
+        Bitmap source = mBitmaps[sourceSlot];
+        Bitmap luminance = create(slot, source.getWidth(), source.getHeight(), Bitmap.Config.ALPHA_8);
+        ColorMatrix toAlpha = new ColorMatrix(new float[] {
+                0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0,
+                0.299f, 0.587f, 0.114f, 0, 0
+        });
+        Paint paint = new Paint();
+        paint.setColorFilter(new ColorMatrixColorFilter(toAlpha));
+        new Canvas(luminance).drawBitmap(source, 0, 0, paint);
+        return luminance;
+    }
+
+    /* Stores a bitmap decoded elsewhere, e.g. by AssetLoader, recycling the slot's current one. */
+    Bitmap set(int slot, Bitmap bitmap) {
+        if (mBitmaps[slot] != bitmap) {
+            recycle(slot);
+        }
+        return put(slot, bitmap);
+    }
+
+    /* Empties the slot without recycling its bitmap, which the caller then owns. */
+    Bitmap take(int slot) {
+        Bitmap bitmap = mBitmaps[slot];
+        mBitmaps[slot] = null;
+        return bitmap;
+    }
+
+    void swap(int a, int b) {
+        Bitmap bitmap = mBitmaps[a];
+        mBitmaps[a] = mBitmaps[b];
+        mBitmaps[b] = bitmap;
+    }
+
+    void recycle(int slot) {
+        if (mBitmaps[slot] != null) {
+            mBitmaps[slot].recycle();
+            mBitmaps[slot] = null;
+        }
+    }
+
+    void release() {
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            recycle(i);
+        }
+    }
+
+    long getTotalBytes() {
+        long total = 0;
+        for (Bitmap bitmap : mBitmaps) {
+            if (bitmap != null) {
+                total += bitmap.getAllocationByteCount();
+            }
+        }
+        return total;
+    }
+
+    long getBudgetBytes() {
+        return mBudgetBytes;
+    }
+
+    private Bitmap put(int slot, Bitmap bitmap) {
+        mBitmaps[slot] = bitmap;
+        long total = getTotalBytes();
+        if (total > mBudgetBytes) {
+            if (!mReportedOverBudget) {
+                mReportedOverBudget = true;
+                Log.w(TAG, "Bitmaps use " + total + " bytes, over the budget of " + mBudgetBytes + ".");
+            }
+        } else {
+            mReportedOverBudget = false;
+        }
+        return bitmap;
+    }
+}
@@ -18,6 +18,8 @@ package com.antonio_asaro.www.android_antonio_analog;
 import android.app.Activity;
 import android.content.ComponentName;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.support.annotation.Nullable;
@@ -27,11 +29,10 @@ import android.support.wearable.complications.ProviderChooserIntent;
 import android.support.wearable.complications.ProviderInfoRetriever;
 import android.util.Log;
 import android.view.View;
+import android.widget.Button;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 
-import java.util.concurrent.Executors;
-
 /**
  * The watch-side config activity for {@link ComplicationWatchFaceService}, which allows for setting
  * the left and right complications of watch face.
@@ -66,6 +67,15 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
     // Required to retrieve complication data from watch face for preview.
     private ProviderInfoRetriever mProviderInfoRetriever;
 
+    // Last-known provider of each complication, painted before the retriever answers.
+    private ProviderInfoCache mProviderInfoCache;
+    private final ProviderInfoCache.Listener mProviderIconListener = new ProviderInfoCache.Listener() {
+        @Override
+        public void onProviderIcon(int complicationId, boolean hasProvider, Bitmap icon) {
+            updateComplicationViews(complicationId, hasProvider, icon);
+        }
+    };
+
     private ImageView mLeftComplicationBackground;
     private ImageView mCenterComplicationBackground;
     private ImageView mRightComplicationBackground;
@@ -76,6 +86,11 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
 
     private Drawable mDefaultAddComplicationDrawable;
 
+    // Cycles the second hand update mode used by the watch face in interactive mode.
+    private Button mUpdateModeButton;
+    private Button mDebugOverlayButton;
+    private SharedPreferences mPreferences;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -116,7 +131,21 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
         mRightComplication.setImageDrawable(mDefaultAddComplicationDrawable);
         mRightComplicationBackground.setVisibility(View.INVISIBLE);
 
-        mProviderInfoRetriever = new ProviderInfoRetriever(getApplicationContext(), Executors.newCachedThreadPool());
+        mPreferences = WatchFacePreferences.get(this);
+        mUpdateModeButton = (Button) findViewById(R.id.update_mode);
+        mUpdateModeButton.setOnClickListener(this);
+        updateUpdateModeView(WatchFacePreferences.getUpdateMode(mPreferences));
+        mDebugOverlayButton = (Button) findViewById(R.id.debug_overlay);
+        mDebugOverlayButton.setOnClickListener(this);
+        updateDebugOverlayView(WatchFacePreferences.getDebugOverlay(mPreferences));
+
+        mProviderInfoCache = ProviderInfoCache.get(this);
+        mProviderInfoCache.setListener(mProviderIconListener);
+        for (int complicationId : ComplicationWatchFaceService.getComplicationIds()) {
+            mProviderInfoCache.load(complicationId);
+        }
+
+        mProviderInfoRetriever = new ProviderInfoRetriever(getApplicationContext(), mProviderInfoCache.getExecutor());
         mProviderInfoRetriever.init();
 
         retrieveInitialComplicationsData();
@@ -126,8 +155,11 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
     protected void onDestroy() {
         super.onDestroy();
         mProviderInfoRetriever.release();
+        mProviderInfoCache.removeListener(mProviderIconListener);
     }
 
+    // Refreshes the cache in the background; only complications whose provider changed since
+    // the last launch, e.g. through the phone app or an app update, are repainted.
     public void retrieveInitialComplicationsData() {
 
         final int[] complicationIds = ComplicationWatchFaceService.getComplicationIds();
@@ -138,7 +170,7 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
                     public void onProviderInfoReceived(
                             int watchFaceComplicationId,
                             @Nullable ComplicationProviderInfo complicationProviderInfo) {
-                        updateComplicationViews(watchFaceComplicationId, complicationProviderInfo);
+                        mProviderInfoCache.update(watchFaceComplicationId, complicationProviderInfo);
                     }
                 },
                 mWatchFaceComponentName,
@@ -153,6 +185,34 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
             launchComplicationHelperActivity(ComplicationLocation.CENTER);
         } else if (view.equals(mRightComplication)) {
             launchComplicationHelperActivity(ComplicationLocation.RIGHT);
+        } else if (view.equals(mUpdateModeButton)) {
+            FrameScheduler.Mode[] modes = FrameScheduler.Mode.values();
+            FrameScheduler.Mode mode = WatchFacePreferences.getUpdateMode(mPreferences);
+            mode = modes[(mode.ordinal() + 1) % modes.length];
+            WatchFacePreferences.setUpdateMode(mPreferences, mode);
+            updateUpdateModeView(mode);
+        } else if (view.equals(mDebugOverlayButton)) {
+            boolean enabled = !WatchFacePreferences.getDebugOverlay(mPreferences);
+            WatchFacePreferences.setDebugOverlay(mPreferences, enabled);
+            updateDebugOverlayView(enabled);
+        }
+    }
+
+    private void updateDebugOverlayView(boolean enabled) {
+        mDebugOverlayButton.setText(enabled ? R.string.debug_overlay_on : R.string.debug_overlay_off);
+    }
+
+    private void updateUpdateModeView(FrameScheduler.Mode mode) {
+        switch (mode) {
+            case SMOOTH:
+                mUpdateModeButton.setText(R.string.update_mode_smooth);
+                break;
+            case TICK:
+                mUpdateModeButton.setText(R.string.update_mode_tick);
+                break;
+            case ECO:
+                mUpdateModeButton.setText(R.string.update_mode_eco);
+                break;
         }
     }
 
@@ -181,33 +241,24 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
     }
 
 
-    public void updateComplicationViews(
-        int watchFaceComplicationId, ComplicationProviderInfo complicationProviderInfo) {
+    public void updateComplicationViews(int watchFaceComplicationId, boolean hasProvider, Bitmap providerIcon) {
         if (watchFaceComplicationId == mLeftComplicationId) {
-            if (complicationProviderInfo != null) {
-                mLeftComplication.setImageIcon(complicationProviderInfo.providerIcon);
-                mLeftComplicationBackground.setVisibility(View.VISIBLE);
-            } else {
-                mLeftComplication.setImageDrawable(mDefaultAddComplicationDrawable);
-                mLeftComplicationBackground.setVisibility(View.INVISIBLE);
-            }
-
+            updateComplicationView(mLeftComplication, mLeftComplicationBackground, hasProvider, providerIcon);
         } else if (watchFaceComplicationId == mCenterComplicationId) {
-            if (complicationProviderInfo != null) {
-                mCenterComplication.setImageIcon(complicationProviderInfo.providerIcon);
-                mCenterComplicationBackground.setVisibility(View.VISIBLE);
-            } else {
-                mCenterComplication.setImageDrawable(mDefaultAddComplicationDrawable);
-                mCenterComplicationBackground.setVisibility(View.INVISIBLE);
-            }
+            updateComplicationView(mCenterComplication, mCenterComplicationBackground, hasProvider, providerIcon);
         } else if (watchFaceComplicationId == mRightComplicationId) {
-            if (complicationProviderInfo != null) {
-                mRightComplication.setImageIcon(complicationProviderInfo.providerIcon);
-                mRightComplicationBackground.setVisibility(View.VISIBLE);
-            } else {
-                mRightComplication.setImageDrawable(mDefaultAddComplicationDrawable);
-                mRightComplicationBackground.setVisibility(View.INVISIBLE);
-            }
+            updateComplicationView(mRightComplication, mRightComplicationBackground, hasProvider, providerIcon);
+        }
+    }
+
+    private void updateComplicationView(
+            ImageButton complication, ImageView background, boolean hasProvider, Bitmap providerIcon) {
+        if (hasProvider) {
+            complication.setImageBitmap(providerIcon);
+            background.setVisibility(View.VISIBLE);
+        } else {
+            complication.setImageDrawable(mDefaultAddComplicationDrawable);
+            background.setVisibility(View.INVISIBLE);
         }
     }
 
@@ -218,8 +269,9 @@ public class ComplicationConfigActivity extends Activity implements View.OnClick
             // Retrieves information for selected Complication provider.
             ComplicationProviderInfo complicationProviderInfo =
                     data.getParcelableExtra(ProviderChooserIntent.EXTRA_PROVIDER_INFO);
+            // Only the chosen complication is reloaded.
             if (mSelectedComplicationId >= 0) {
-                updateComplicationViews(mSelectedComplicationId, complicationProviderInfo);
+                mProviderInfoCache.update(mSelectedComplicationId, complicationProviderInfo);
             }
         }
 
@@ -1,13 +1,11 @@
 package com.antonio_asaro.www.android_antonio_analog;
 
-import android.os.Vibrator;
 import android.util.Log;
 
 import com.google.android.gms.wearable.CapabilityInfo;
 import com.google.android.gms.wearable.Node;
 import com.google.android.gms.wearable.WearableListenerService;
 
-import java.util.Calendar;
 import java.util.List;
 
 public class ComplicationListenerService extends WearableListenerService {
@@ -38,21 +36,14 @@ public class ComplicationListenerService extends WearableListenerService {
     @Override
     public void onPeerConnected(com.google.android.gms.wearable.Node peer) {
         Log.d(TAG, "onPeerConnected()");
-        ComplicationWatchFaceService.mWearableConnected = true;
+        ConnectivityState.get(this).reportPeer(true);
     }
 
     @Override
     public void onPeerDisconnected(com.google.android.gms.wearable.Node peer) {
         Log.d(TAG, "onPeerDisconnected()");
-        Calendar now = Calendar.getInstance();
-        int hour = now.get(Calendar.HOUR_OF_DAY);
-
-        ComplicationWatchFaceService.mWearableConnected = false;
-        if ((hour >= 7) && (hour <= 22)) {
-            Vibrator vibrator = (Vibrator) getSystemService(VIBRATOR_SERVICE);
-            long[] vibrationPattern = {0, 500, 250, 500};
-            vibrator.vibrate(vibrationPattern, -1);
-        }
+        /* Vibrates once the disconnect has held, see ConnectivityState. */
+        ConnectivityState.get(this).reportPeer(false);
     }
 
 }
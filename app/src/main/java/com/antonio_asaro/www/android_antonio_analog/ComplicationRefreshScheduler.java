@@ -0,0 +1,130 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import android.support.wearable.complications.ComplicationData;
+
+import java.util.Arrays;
+
+/**
+ * Wakes the engine when a complication has to be rendered again without new data: its
+ * time-dependent text moves on, or it becomes active or expires. Each slot has one message
+ * queued for the exact time of its next change, see {@link ComplicationTiming#nextChangeMillis};
+ * a slot that won't change within {@link #HORIZON_MS}, such as expired or TYPE_NO_DATA data,
+ * is only looked at again after that.
+ * <p>
+ * Messages run on the uptime clock, which stops while the watch sleeps in ambient mode, so the
+ * engine also calls {@link #onTimeTick} every ambient minute; it refreshes the slots whose change
+ * is due by the wall clock. Main thread only.
+ */
+final class ComplicationRefreshScheduler implements Handler.Callback {
+    /** Called when the slot's rendering is out of date. */
+    interface Listener {
+        void onComplicationRefresh(int slot);
+    }
+
+    static final long HORIZON_MS = 24 * 60 * 60 * 1000;
+
+    /* One message per slot, so rescheduling a slot replaces its wakeup. */
+    private static final int MSG_REFRESH = 0;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper(), this);
+    private final Listener mListener;
+    private final ComplicationData[] mData;
+    /* When each slot's current rendering was made, per slot. */
+    private final long[] mRenderedMillis;
+    /* Wall-clock time of each slot's queued wakeup, -1 if none. */
+    private final long[] mDueMillis;
+    private boolean mEnabled;
+    private int mRefreshCount;
+
+    ComplicationRefreshScheduler(int slotCount, Listener listener) {
+        mListener = listener;
+        mData = new ComplicationData[slotCount];
+        mRenderedMillis = new long[slotCount];
+        mDueMillis = new long[slotCount];
+        Arrays.fill(mDueMillis, -1);
+    }
+
+    /* New data is rendered at nowMillis by the caller. */
+    void setComplicationData(int slot, ComplicationData complicationData, long nowMillis) {
+        mData[slot] = complicationData;
+        mRenderedMillis[slot] = nowMillis;
+        schedule(slot, nowMillis);
+    }
+
+    /*
+     * Wakeups are only needed while the face is visible. Slots that changed while it was not
+     * are refreshed right away when it comes back.
+     */
+    void setEnabled(boolean enabled, long nowMillis) {
+        mEnabled = enabled;
+        for (int i = 0; i < mData.length; i++) {
+            if (enabled) {
+                refresh(i, nowMillis);
+            } else {
+                mHandler.removeMessages(MSG_REFRESH + i);
+                mDueMillis[i] = -1;
+            }
+        }
+    }
+
+    /* Refreshes the slots whose wakeup is due, in case the uptime clock slept through it. */
+    void onTimeTick(long nowMillis) {
+        for (int i = 0; i < mData.length; i++) {
+            if (mDueMillis[i] >= 0 && nowMillis >= mDueMillis[i]) {
+                refresh(i, nowMillis);
+            }
+        }
+    }
+
+    void release() {
+        mEnabled = false;
+        for (int i = 0; i < mData.length; i++) {
+            mHandler.removeMessages(MSG_REFRESH + i);
+        }
+        Arrays.fill(mDueMillis, -1);
+    }
+
+    int getRefreshCount() {
+        return mRefreshCount;
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        int slot = msg.what - MSG_REFRESH;
+        if (slot < 0 || slot >= mData.length) {
+            return false;
+        }
+        refresh(slot, System.currentTimeMillis());
+        return true;
+    }
+
+    /* Renders the slot if it changed since its last rendering, then queues its next wakeup. */
+    private void refresh(int slot, long nowMillis) {
+        ComplicationData complicationData = mData[slot];
+        if (complicationData == null) {
+            return;
+        }
+        if (ComplicationTiming.hasTimeDependentChange(complicationData, mRenderedMillis[slot], nowMillis)) {
+            mRenderedMillis[slot] = nowMillis;
+            mRefreshCount++;
+            mListener.onComplicationRefresh(slot);
+        }
+        schedule(slot, nowMillis);
+    }
+
+    private void schedule(int slot, long nowMillis) {
+        mHandler.removeMessages(MSG_REFRESH + slot);
+        mDueMillis[slot] = -1;
+        if (!mEnabled) {
+            return;
+        }
+        long nextChangeMillis = ComplicationTiming.nextChangeMillis(mData[slot], nowMillis, HORIZON_MS);
+        long delayMillis = (nextChangeMillis < 0) ? HORIZON_MS : nextChangeMillis - nowMillis;
+        mDueMillis[slot] = nowMillis + delayMillis;
+        mHandler.sendEmptyMessageAtTime(MSG_REFRESH + slot, SystemClock.uptimeMillis() + delayMillis);
+    }
+}
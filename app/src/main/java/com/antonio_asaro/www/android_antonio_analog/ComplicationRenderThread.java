@@ -0,0 +1,235 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.rendering.ComplicationDrawable;
+
+/**
+ * Renders the complication slots on a dedicated thread into {@link LayerBuffer}s, so that an
+ * expensive provider update costs the main thread's onDraw() nothing but a blit. The
+ * {@link ComplicationDrawable}s are handed over in the constructor and from then on only touched
+ * on the render thread; the main thread talks to them through messages.
+ * <p>
+ * Each slot is rendered at its on-screen bounds plus {@link #MARGIN} for the ambient outline, and
+ * tagged with the mode flags it was drawn with, see {@link #modeTag}, and with the generation of
+ * its bounds; a layer drawn for bounds that {@link #setBounds} has since replaced is never
+ * composited, e.g. right after a surface change. Icons that the drawable
+ * loads asynchronously invalidate it when they arrive, which renders the slot again.
+ */
+final class ComplicationRenderThread implements Handler.Callback, Drawable.Callback {
+    /* Margin around the complication bounds for the ambient outline stroke. */
+    static final int MARGIN = 2;
+
+    /**
+     * Called on the render thread after a slot's new layer has been published, once no further
+     * data or render is queued; slot is the last one rendered.
+     */
+    interface Listener {
+        void onComplicationRendered(int slot);
+    }
+
+    private static final int MSG_SET_DATA = 0;
+    private static final int MSG_SET_MODE = 1;
+    private static final int MSG_SET_BOUNDS = 2;
+    /* One render message per slot, so pending renders of a slot coalesce. */
+    private static final int MSG_RENDER = 3;
+
+    private static final int TAG_AMBIENT = 1;
+    private static final int TAG_LOW_BIT_AMBIENT = 2;
+    private static final int TAG_BURN_IN_PROTECTION = 4;
+
+    private final HandlerThread mThread;
+    private final Handler mHandler;
+    private final Listener mListener;
+    private final LayerBuffer[] mLayers;
+    /* Main thread: bumped by every setBounds() of the slot. */
+    private final int[] mBoundsGenerations;
+
+    /* Render thread state. */
+    private final ComplicationDrawable[] mDrawables;
+    private final Rect[] mBounds;
+    private final int[] mRenderBoundsGenerations;
+    private final Paint mOutlinePaint = new Paint();
+    private int mModeTag;
+
+    /* Written on the render thread, read after release(). */
+    private long mRenderNanos;
+    private int mRenderCount;
+
+    ComplicationRenderThread(ComplicationDrawable[] drawables, Listener listener) {
+        mDrawables = drawables;
+        mListener = listener;
+        mLayers = new LayerBuffer[drawables.length];
+        mBounds = new Rect[drawables.length];
+        mBoundsGenerations = new int[drawables.length];
+        mRenderBoundsGenerations = new int[drawables.length];
+        for (int i = 0; i < drawables.length; i++) {
+            mLayers[i] = new LayerBuffer();
+            mBounds[i] = new Rect();
+            drawables[i].setCallback(this);
+        }
+        mOutlinePaint.setColor(Color.WHITE);
+        mOutlinePaint.setStyle(Paint.Style.STROKE);
+
+        mThread = new HandlerThread("ComplicationRender", Process.THREAD_PRIORITY_DISPLAY);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper(), this);
+    }
+
+    static int modeTag(boolean ambient, boolean lowBitAmbient, boolean burnInProtection) {
+        return (ambient ? TAG_AMBIENT : 0)
+                | (lowBitAmbient ? TAG_LOW_BIT_AMBIENT : 0)
+                | (burnInProtection ? TAG_BURN_IN_PROTECTION : 0);
+    }
+
+    void setComplicationData(int slot, ComplicationData complicationData) {
+        mHandler.obtainMessage(MSG_SET_DATA, slot, 0, complicationData).sendToTarget();
+    }
+
+    void setMode(boolean ambient, boolean lowBitAmbient, boolean burnInProtection) {
+        mHandler.obtainMessage(MSG_SET_MODE, modeTag(ambient, lowBitAmbient, burnInProtection), 0, null)
+                .sendToTarget();
+    }
+
+    void setBounds(int slot, int left, int top, int right, int bottom) {
+        mBoundsGenerations[slot]++;
+        mHandler.obtainMessage(MSG_SET_BOUNDS, slot, mBoundsGenerations[slot], new Rect(left, top, right, bottom))
+                .sendToTarget();
+    }
+
+    /* Renders the slot again at the current time, e.g. when its time-dependent text moves on. */
+    void requestRender(int slot) {
+        if (!mHandler.hasMessages(MSG_RENDER + slot)) {
+            mHandler.sendEmptyMessage(MSG_RENDER + slot);
+        }
+    }
+
+    /*
+     * Main thread: the newest layer of the slot rendered for modeTag at the slot's current
+     * bounds, or null while there is none.
+     */
+    Bitmap acquire(int slot, int modeTag) {
+        return mLayers[slot].acquire(modeTag, mBoundsGenerations[slot]);
+    }
+
+    int getGeneration(int slot) {
+        return mLayers[slot].getPublishedGeneration();
+    }
+
+    /* Stops the render thread, waiting for a render in progress, and frees the layers. */
+    void release() {
+        mThread.quitSafely();
+        try {
+            mThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (LayerBuffer layer : mLayers) {
+            layer.release();
+        }
+    }
+
+    long getAverageRenderNanos() {
+        return (mRenderCount == 0) ? 0 : mRenderNanos / mRenderCount;
+    }
+
+    int getRenderCount() {
+        return mRenderCount;
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_SET_DATA:
+                mDrawables[msg.arg1].setComplicationData((ComplicationData) msg.obj);
+                requestRender(msg.arg1);
+                return true;
+            case MSG_SET_MODE:
+                mModeTag = msg.arg1;
+                for (int i = 0; i < mDrawables.length; i++) {
+                    mDrawables[i].setInAmbientMode((mModeTag & TAG_AMBIENT) != 0);
+                    mDrawables[i].setLowBitAmbient((mModeTag & TAG_LOW_BIT_AMBIENT) != 0);
+                    mDrawables[i].setBurnInProtection((mModeTag & TAG_BURN_IN_PROTECTION) != 0);
+                    requestRender(i);
+                }
+                return true;
+            case MSG_SET_BOUNDS:
+                mBounds[msg.arg1].set((Rect) msg.obj);
+                mRenderBoundsGenerations[msg.arg1] = msg.arg2;
+                mDrawables[msg.arg1].setBounds(mBounds[msg.arg1]);
+                requestRender(msg.arg1);
+                return true;
+            default:
+                int slot = msg.what - MSG_RENDER;
+                if (slot >= 0 && slot < mDrawables.length) {
+                    render(slot);
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    @Override
+    public void invalidateDrawable(Drawable who) {
+        for (int i = 0; i < mDrawables.length; i++) {
+            if (mDrawables[i] == who) {
+                requestRender(i);
+            }
+        }
+    }
+
+    @Override
+    public void scheduleDrawable(Drawable who, Runnable what, long when) {
+    }
+
+    @Override
+    public void unscheduleDrawable(Drawable who, Runnable what) {
+    }
+
+    private void render(int slot) {
+        Rect bounds = mBounds[slot];
+        if (bounds.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Canvas canvas = mLayers[slot].beginWrite(bounds.width() + 2 * MARGIN, bounds.height() + 2 * MARGIN);
+
+        /* The drawable renders at its on-screen bounds, so shift them to the bitmap's origin. */
+        canvas.save();
+        canvas.translate(MARGIN - bounds.left, MARGIN - bounds.top);
+        mDrawables[slot].draw(canvas, System.currentTimeMillis());
+        if ((mModeTag & TAG_AMBIENT) != 0) {
+            canvas.drawCircle(bounds.centerX(), bounds.centerY(), bounds.width() / 2, mOutlinePaint);
+        }
+        canvas.restore();
+
+        mLayers[slot].publish(mModeTag, mRenderBoundsGenerations[slot]);
+        mRenderNanos += System.nanoTime() - start;
+        mRenderCount++;
+        if (!hasPendingWork()) {
+            mListener.onComplicationRendered(slot);
+        }
+    }
+
+    /* A batch of updates is rendered slot after slot; the listener only hears of the last. */
+    private boolean hasPendingWork() {
+        if (mHandler.hasMessages(MSG_SET_DATA)) {
+            return true;
+        }
+        for (int i = 0; i < mDrawables.length; i++) {
+            if (mHandler.hasMessages(MSG_RENDER + i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,98 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.support.wearable.complications.ComplicationData;
+import android.support.wearable.complications.ComplicationText;
+
+/**
+ * Time related queries on {@link ComplicationData}, used to decide when a complication has to be
+ * rendered again although no new data arrived.
+ */
+final class ComplicationTiming {
+    /*
+     * First probe of the text search in nextChangeMillis(); each next one is twice as far out.
+     * Texts change on second or coarser boundaries.
+     */
+    private static final long FIRST_PROBE_MS = 60 * 1000;
+
+    private ComplicationTiming() {
+    }
+
+    /**
+     * Returns whether a complication's rendering can differ between two times without a data
+     * update: its active state flips, or its time-dependent text (countdowns, "x min ago")
+     * changes.
+     */
+    static boolean hasTimeDependentChange(ComplicationData complicationData, long fromMillis, long toMillis) {
+        return complicationData.isActive(fromMillis) != complicationData.isActive(toMillis)
+                || hasTextChange(complicationData, fromMillis, toMillis);
+    }
+
+    /**
+     * Returns the first time after {@code fromMillis} and within {@code horizonMillis} of it at
+     * which {@link #hasTimeDependentChange} reports a change from {@code fromMillis}, to the
+     * millisecond, or -1 if there is none.
+     * <p>
+     * The active window comes straight from the data's start and end times. The library exposes
+     * no text precision, so the text is probed a minute out, then at doubling distances up to the
+     * horizon or the window's edge, and the first interval that shows a change is bisected: a
+     * few dozen text evaluations rather than one per minute of the horizon. This relies on a
+     * text, once it differs from the one at {@code fromMillis}, not returning to it before the
+     * next probe, which holds for countdowns, elapsed times and clock formats.
+     */
+    static long nextChangeMillis(ComplicationData complicationData, long fromMillis, long horizonMillis) {
+        long activeChangeMillis = nextActiveChangeMillis(complicationData, fromMillis);
+        long limitMillis = fromMillis + horizonMillis;
+        if (activeChangeMillis >= 0 && activeChangeMillis <= limitMillis) {
+            /* The text only matters up to the active change, which is a change anyway. */
+            limitMillis = activeChangeMillis - 1;
+        } else {
+            activeChangeMillis = -1;
+        }
+
+        long before = fromMillis;
+        for (long offset = FIRST_PROBE_MS; before < limitMillis; offset *= 2) {
+            long after = Math.min(fromMillis + offset, limitMillis);
+            if (hasTextChange(complicationData, fromMillis, after)) {
+                /* Unchanged at before, changed at after. */
+                while (after - before > 1) {
+                    long middle = before + (after - before) / 2;
+                    if (hasTextChange(complicationData, fromMillis, middle)) {
+                        after = middle;
+                    } else {
+                        before = middle;
+                    }
+                }
+                return after;
+            }
+            before = after;
+        }
+        return activeChangeMillis;
+    }
+
+    /* The first time after fromMillis at which the data's active state differs, or -1. */
+    private static long nextActiveChangeMillis(ComplicationData complicationData, long fromMillis) {
+        long startMillis = complicationData.getStartTime();
+        long endMillis = complicationData.getEndTime();
+        long changeMillis;
+        if (startMillis > fromMillis) {
+            changeMillis = startMillis;
+        } else if (endMillis >= fromMillis && endMillis < Long.MAX_VALUE) {
+            /* Active up to and including the end time. */
+            changeMillis = endMillis + 1;
+        } else {
+            return -1;
+        }
+        return (complicationData.isActive(changeMillis) != complicationData.isActive(fromMillis)) ? changeMillis : -1;
+    }
+
+    private static boolean hasTextChange(ComplicationData complicationData, long fromMillis, long toMillis) {
+        int type = complicationData.getType();
+        if (type != ComplicationData.TYPE_SHORT_TEXT && type != ComplicationData.TYPE_RANGED_VALUE) {
+            return false;
+        }
+        ComplicationText text = complicationData.getShortText();
+        ComplicationText title = complicationData.getShortTitle();
+        return (text != null && !text.returnsSameText(fromMillis, toMillis))
+                || (title != null && !title.returnsSameText(fromMillis, toMillis));
+    }
+}
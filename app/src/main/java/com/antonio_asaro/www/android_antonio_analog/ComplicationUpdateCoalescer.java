@@ -0,0 +1,141 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.app.PendingIntent;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Parcel;
+import android.support.wearable.complications.ComplicationData;
+
+import java.util.Arrays;
+
+/**
+ * Filters and batches complication data updates before they reach the renderer. An update whose
+ * content equals the slot's current one is dropped. The rest are held for a short window after
+ * the first one, so that providers updating together, at wake or on a step count burst, are
+ * rendered as one batch and invalidate the face once.
+ * <p>
+ * Content is compared as the marshalled texts, values, icons and validity window plus an
+ * equals() on the tap action, which as a binder can't be marshalled. The comparison may see equal data as changed,
+ * e.g. icons in shared memory, which costs a render but never drops a real change. Main thread
+ * only.
+ */
+final class ComplicationUpdateCoalescer implements Handler.Callback {
+    /** Receives each slot's newest data when a batch is applied. */
+    interface Listener {
+        void onComplicationData(int slot, ComplicationData complicationData);
+    }
+
+    private static final int MSG_FLUSH = 0;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper(), this);
+    private final Listener mListener;
+    private final long mWindowMillis;
+    /* Content of the newest accepted data per slot, pending or applied. */
+    private final byte[][] mCurrent;
+    private final PendingIntent[] mCurrentTapAction;
+    private final ComplicationData[] mPending;
+
+    private int mReceived;
+    private int mDropped;
+    private int mCoalesced;
+    private int mBatches;
+
+    ComplicationUpdateCoalescer(int slotCount, long windowMillis, Listener listener) {
+        mListener = listener;
+        mWindowMillis = windowMillis;
+        mCurrent = new byte[slotCount][];
+        mCurrentTapAction = new PendingIntent[slotCount];
+        mPending = new ComplicationData[slotCount];
+    }
+
+    void offer(int slot, ComplicationData complicationData) {
+        mReceived++;
+        byte[] content = marshallContent(complicationData);
+        PendingIntent tapAction = complicationData.getTapAction();
+        if (content != null && Arrays.equals(content, mCurrent[slot])
+                && (tapAction == null ? mCurrentTapAction[slot] == null : tapAction.equals(mCurrentTapAction[slot]))) {
+            mDropped++;
+            return;
+        }
+        mCurrent[slot] = content;
+        mCurrentTapAction[slot] = tapAction;
+        mPending[slot] = complicationData;
+        if (mHandler.hasMessages(MSG_FLUSH)) {
+            mCoalesced++;
+        } else {
+            mHandler.sendEmptyMessageDelayed(MSG_FLUSH, mWindowMillis);
+        }
+    }
+
+    /* Drops pending updates; e.g. when the engine goes away. */
+    void release() {
+        mHandler.removeMessages(MSG_FLUSH);
+        Arrays.fill(mPending, null);
+    }
+
+    int getReceivedCount() {
+        return mReceived;
+    }
+
+    int getDroppedCount() {
+        return mDropped;
+    }
+
+    int getCoalescedCount() {
+        return mCoalesced;
+    }
+
+    int getBatchCount() {
+        return mBatches;
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        if (msg.what != MSG_FLUSH) {
+            return false;
+        }
+        mBatches++;
+        for (int i = 0; i < mPending.length; i++) {
+            if (mPending[i] != null) {
+                ComplicationData complicationData = mPending[i];
+                mPending[i] = null;
+                mListener.onComplicationData(i, complicationData);
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Everything the renderer draws, and the window in which it is active, or null if it can't
+     * be marshalled. The same text renewed for a new window must not be dropped, or the slot goes
+     * inactive when the old one ends.
+     */
+    private static byte[] marshallContent(ComplicationData complicationData) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeInt(complicationData.getType());
+            parcel.writeLong(complicationData.getStartTime());
+            parcel.writeLong(complicationData.getEndTime());
+            parcel.writeInt(complicationData.getImageStyle());
+            parcel.writeFloat(complicationData.getValue());
+            parcel.writeFloat(complicationData.getMinValue());
+            parcel.writeFloat(complicationData.getMaxValue());
+            parcel.writeParcelable(complicationData.getShortText(), 0);
+            parcel.writeParcelable(complicationData.getShortTitle(), 0);
+            parcel.writeParcelable(complicationData.getLongText(), 0);
+            parcel.writeParcelable(complicationData.getLongTitle(), 0);
+            parcel.writeParcelable(complicationData.getContentDescription(), 0);
+            parcel.writeParcelable(complicationData.getIcon(), 0);
+            parcel.writeParcelable(complicationData.getBurnInProtectionIcon(), 0);
+            parcel.writeParcelable(complicationData.getSmallImage(), 0);
+            parcel.writeParcelable(complicationData.getLargeImage(), 0);
+            return parcel.marshall();
+        } catch (RuntimeException e) {
+            /* E.g. a bitmap icon in shared memory, which marshall() refuses. */
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
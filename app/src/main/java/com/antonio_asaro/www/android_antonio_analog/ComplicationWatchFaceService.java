@@ -6,20 +6,18 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.ColorMatrix;
-import android.graphics.ColorMatrixColorFilter;
 import android.graphics.Paint;
 import android.graphics.Rect;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.Drawable;
+import android.graphics.Typeface;
 import android.os.BatteryManager;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.support.wearable.complications.ComplicationData;
 import android.support.wearable.complications.ComplicationHelperActivity;
 import android.support.wearable.complications.SystemProviders;
@@ -27,7 +25,6 @@ import android.support.wearable.complications.rendering.ComplicationDrawable;
 import android.support.wearable.watchface.CanvasWatchFaceService;
 import android.support.wearable.watchface.WatchFaceService;
 import android.support.wearable.watchface.WatchFaceStyle;
-import android.text.format.DateFormat;
 import android.util.Log;
 import android.util.SparseArray;
 import android.view.SurfaceHolder;
@@ -38,7 +35,6 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
 import java.util.TimeZone;
-import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -56,17 +52,16 @@ import java.util.concurrent.TimeUnit;
 public class ComplicationWatchFaceService extends CanvasWatchFaceService {
     private static final String TAG = "ComplicationWatchFaceService";
 
-    /*
-     * Updates rate in milliseconds for interactive mode. We update once a second to advance the
-     * second hand.
-     */
-    private static final long INTERACTIVE_UPDATE_RATE_MS = TimeUnit.MILLISECONDS.toMillis(33); // TimeUnit.SECONDS.toMillis(1);
-
     /**
      * Handler message id for updating the time periodically in interactive mode.
      */
     private static final int MSG_UPDATE_TIME = 0;
 
+    /**
+     * Handler message id for rendering the next minute's ambient frame ahead of its time tick.
+     */
+    private static final int MSG_PREPARE_AMBIENT_FRAME = 1;
+
 
     private static final int LEFT_COMPLICATION_ID = 100;
     private static final int CENTER_COMPLICATION_ID = 101;
@@ -132,9 +127,6 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
         }
     }
 
-    public static boolean mWearableConnected;
-
-
     @Override
     public Engine onCreateEngine() {
         return new Engine();
@@ -155,37 +147,119 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
                     case MSG_UPDATE_TIME:
                         engine.handleUpdateTimeMessage();
                         break;
+                    case MSG_PREPARE_AMBIENT_FRAME:
+                        engine.prepareAmbientFrame();
+                        break;
                 }
             }
         }
     }
 
     private class Engine extends CanvasWatchFaceService.Engine {
-        private static final float HOUR_STROKE_WIDTH = 12f;
-        private static final float MINUTE_STROKE_WIDTH = 10f;
-        private static final float SECOND_TICK_STROKE_WIDTH = 2f;
         private static final int FORGOT_PHONE_NOTIFICATION_ID = 1;
 
-        private static final float CENTER_GAP_AND_CIRCLE_RADIUS = 4f;
+        /* Offsets from BitmapAssets.DIAL_LAYER, one cached static dial layer per drawing mode. */
+        private static final int DIAL_MODE_INTERACTIVE = 0;
+        private static final int DIAL_MODE_AMBIENT = 1;
+        private static final int DIAL_MODE_LOW_BIT = 2;
+        private static final int DIAL_MODE_COUNT = 3;
 
-        private static final int SHADOW_RADIUS = 6;
-        /* Handler to update the time once a second in interactive mode. */
+        /*
+         * Nodes of mScene in drawing order, also the elements whose bounds mDirtyRegion tracks;
+         * complications take one each.
+         */
+        private static final int NODE_DIAL = 0;
+        private static final int NODE_BATTERY = 1;
+        private static final int NODE_COMPLICATION = 2;
+        private static final int NODE_DISCONNECT = NODE_COMPLICATION + 3;
+        private static final int NODE_TIME_TEXT = NODE_DISCONNECT + 1;
+        private static final int NODE_HANDS = NODE_TIME_TEXT + 1;
+        /* The second hand, when shown, and the center dot over it. */
+        private static final int NODE_SECOND_HAND = NODE_HANDS + 1;
+        private static final int NODE_COUNT = NODE_SECOND_HAND + 1;
+
+        /* The day/date line overlaps the battery gauge, so it is off for now. */
+        private static final boolean SHOW_DAY_DATE = false;
+
+        /* Lines of engine counters below the frame timings on the debug overlay. */
+        private static final int DEBUG_OVERLAY_COUNTER_LINES = 4;
+
+        /* Handler to update the time in interactive mode, whenever mFrameScheduler says so. */
         private final Handler mUpdateTimeHandler = new EngineHandler(this);
+        private final FrameScheduler mFrameScheduler = new FrameScheduler();
+        private SharedPreferences mPreferences;
+        private final SharedPreferences.OnSharedPreferenceChangeListener mPreferenceListener =
+                new SharedPreferences.OnSharedPreferenceChangeListener() {
+            @Override
+            public void onSharedPreferenceChanged(SharedPreferences preferences, String key) {
+                if (WatchFacePreferences.KEY_UPDATE_MODE.equals(key)
+                        && mFrameScheduler.setMode(WatchFacePreferences.getUpdateMode(preferences))) {
+                    invalidateFrame();
+                    updateTimer();
+                } else if (WatchFacePreferences.KEY_DEBUG_OVERLAY.equals(key)) {
+                    mShowDebugOverlay = WatchFacePreferences.getDebugOverlay(preferences);
+                    invalidate();
+                }
+            }
+        };
+        /* Debounced phone connection, pushed from ConnectivityState on the main thread. */
+        private ConnectivityState mConnectivityState;
+        private boolean mWearableConnected;
+        private final ConnectivityState.Listener mConnectivityListener = new ConnectivityState.Listener() {
+            @Override
+            public void onConnectivityChanged(boolean connected) {
+                mWearableConnected = connected;
+                mEventRecorder.record(EventTrace.TYPE_PEER, connected);
+                mScene.invalidate(NODE_DISCONNECT);
+                invalidate();
+            }
+        };
         private Calendar mCalendar;
         private final BroadcastReceiver mTimeZoneReceiver = new BroadcastReceiver() {
             @Override
             public void onReceive(Context context, Intent intent) {
                 mCalendar.setTimeZone(TimeZone.getDefault());
+                mFrameClock.setTimeZone(TimeZone.getDefault());
+                mDayDateKey = -1;
+                mAmbientContentVersion++;
                 invalidate();
             }
         };
-        private boolean mRegisteredTimeZoneReceiver = false;
+        private final BroadcastReceiver mBatteryReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+                int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, 100);
+                int status = intent.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+                boolean charging = (status == BatteryManager.BATTERY_STATUS_CHARGING)
+                        || (status == BatteryManager.BATTERY_STATUS_FULL);
+                if (level >= 0 && scale > 0) { level = level * 100 / scale; }
+                if (mBatteryGauge.update(level, charging, System.currentTimeMillis()) && !mAmbient) {
+                    mScene.invalidate(NODE_BATTERY);
+                    invalidate();
+                }
+            }
+        };
+        private final BroadcastReceiver mLocaleReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                mDayDateFormat = null;
+                mTextCache.clear();
+                mDayDateKey = -1;
+                invalidateFrame();
+            }
+        };
+        private boolean mRegisteredReceivers = false;
         private boolean mMuteMode;
+        private int mSurfaceWidth;
+        private int mSurfaceHeight;
         private float mCenterX;
         private float mCenterY;
-        private float mSecondHandLength;
-        private float sMinuteHandLength;
-        private float sHourHandLength;
+        /* Every position and size on the face, recomputed for each surface size. */
+        private final FaceLayout mLayout = new FaceLayout();
+        private final TickGeometry mTickGeometry = new TickGeometry();
+        /* Time of the frame being drawn, taken once in onDraw() and read by every draw stage. */
+        private final FrameClock mFrameClock = new FrameClock(TimeZone.getDefault());
         private int mWatchHandColor;
         private int mWatchTickColor;
         private int mWatchHandHighlightColor;
@@ -195,83 +269,339 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
         private Paint mSecondPaint;
         private Paint mTickAndCirclePaint;
         private Paint mDayDatePaint;
+        private Paint mTimePaint;
+        private Paint mBatteryPaint;
+        private Paint mDisconnectPaint;
+        private final char[] mTimeText = new char[TimeText.MAX_LENGTH];
+        /* Pre-rasterised time and date text, so the text shaper only runs when the text changes. */
+        private final TextCache mTextCache = new TextCache(8);
+        /* Formatted day/date text, and the year and day of year it was formatted for. */
+        private String mDayDateText;
+        private long mDayDateKey = -1;
+        /* Reports any allocation made inside onDraw() in debug builds. */
+        private final AllocationTracker mAllocationTracker = new AllocationTracker(BuildConfig.DEBUG);
+        /* Per-stage timing of onDraw(), shown over the face when the debug overlay is enabled. */
+        private final FrameStats mFrameStats = new FrameStats();
+        private boolean mShowDebugOverlay;
+        /* Trace of engine events for offline replay, recorded in debug builds. */
+        private EventRecorder mEventRecorder;
+        private Paint mDebugOverlayPaint;
+        private final char[] mDebugOverlayText = new char[48];
         private Paint mBackgroundPaint;
-        private Bitmap mBackgroundBitmap;
-        private Bitmap mGrayBackgroundBitmap;
+        private Paint mGrayBackgroundPaint;
+        /*
+         * Every bitmap below lives in mBitmapAssets, decoded at the size it is drawn at and
+         * reused while the surface keeps its size.
+         */
+        private BitmapAssets mBitmapAssets;
+        /* Index of the build-time variants for the surface width, -1 if there are none. */
+        private int mAssetVariant = -1;
+        /*
+         * Only the background is decoded before the first frame. Sprites, the disconnect icon and
+         * the ambient backgrounds come from the loader thread and are left out until they arrive.
+         */
+        private AssetLoader mAssetLoader;
+        private final AssetLoader.Listener mAssetListener = new AssetLoader.Listener() {
+            @Override
+            public void onAssetLoaded(int slot, Bitmap bitmap) {
+                if ((slot == BitmapAssets.GRAY_BACKGROUND && !usesGrayBackground())
+                        || (slot == BitmapAssets.LOW_BIT_BACKGROUND && !usesLowBitBackground())) {
+                    /* The device properties changed while it was decoding. */
+                    bitmap.recycle();
+                    return;
+                }
+                mBitmapAssets.set(slot, bitmap);
+                if (slot == BitmapAssets.DISCONNECT) {
+                    setSpriteBounds(mDisconnectIconBounds, BitmapAssets.DISCONNECT, FaceLayout.DISCONNECT_ICON);
+                    /* Its recording may still point at a recycled icon. */
+                    mScene.invalidate(NODE_DISCONNECT);
+                    if (!mWearableConnected) {
+                        invalidateFrame();
+                    }
+                } else {
+                    invalidateDialLayers();
+                    invalidate();
+                }
+                if (!mAssetLoader.isLoading() && mAssetsLoadedNanos < 0) {
+                    mAssetsLoadedNanos = SystemClock.elapsedRealtimeNanos() - mCreatedNanos;
+                    Log.i(TAG, "All assets loaded " + mAssetsLoadedNanos / 1000000 + " ms after engine creation.");
+                }
+            }
+        };
+        /* Surface size the sprites were last requested for. */
+        private int mSpriteWidth;
+        private int mSpriteHeight;
+        /*
+         * Face-switch latency: engine creation to the first frame, and to the last background
+         * asset, both logged once per engine.
+         */
+        private long mCreatedNanos;
+        private long mFirstFrameNanos = -1;
+        private long mAssetsLoadedNanos = -1;
+        /*
+         * Background, planets, ticks and numerals never change between frames, so they are baked
+         * into one off-screen bitmap per mode and blitted in onDraw() instead of being repainted.
+         */
+        private final boolean[] mDialLayerValid = new boolean[DIAL_MODE_COUNT];
+        private final Canvas mDialLayerCanvas = new Canvas();
+        /* Hands with their shadows baked in, rendered once per size and dial mode; see renderHandSprites(). */
+        private final HandSprites mHandSprites = new HandSprites(DIAL_MODE_COUNT);
+        /*
+         * The composed frame is kept between frames and only the dirty rectangle, the union of
+         * the old and new bounds of whatever changed, is redrawn into it over the dial layer.
+         * The watch face API always hands out the full surface, so the frame is then blitted.
+         */
+        private final Canvas mFrameCanvas = new Canvas();
+        /*
+         * The face as a retained scene: each node keeps a recording or a cached bitmap and is
+         * only recorded again once an event, or a changed key in updateDirtyRegion(), marks it
+         * dirty. onDraw() replays the nodes that reach into the dirty rectangle.
+         */
+        private final SceneGraph<Canvas> mScene = new SceneGraph<>(NODE_COUNT);
+        /* Dial layers are cached bitmaps already; recording makes sure the mode's layer is drawn. */
+        private final SceneGraph.Node<Canvas> mDialNode = new SceneGraph.Node<Canvas>() {
+            private int mSlot;
+
+            @Override
+            public void record() {
+                mSlot = prepareDialLayer();
+            }
+
+            @Override
+            public void draw(Canvas canvas) {
+                canvas.drawBitmap(mBitmapAssets.get(mSlot), 0, 0, null);
+            }
+        };
+        private final PictureNode mBatteryNode = new PictureNode() {
+            @Override
+            protected void onRecord(Canvas canvas) {
+                drawBattery(canvas);
+            }
+        };
+        private final PictureNode mDisconnectNode = new PictureNode() {
+            @Override
+            protected void onRecord(Canvas canvas) {
+                checkWearableBT(canvas);
+            }
+        };
+        private final SceneGraph.Node<Canvas> mTimeTextNode = new SceneGraph.Node<Canvas>() {
+            private final char[] mText = new char[TimeText.MAX_LENGTH];
+            private int mLength;
+            private float mX;
+            private float mY;
+            private int mMode;
+
+            /* The text bitmaps stay in mTextCache, which may reuse them; only the text is kept. */
+            @Override
+            public void record() {
+                mLength = formatTimeText(mText);
+                mX = getTimeTextX();
+                mY = getTimeTextY();
+                mMode = getDialMode();
+                updateDayDateText();
+            }
+
+            @Override
+            public void draw(Canvas canvas) {
+                mTextCache.drawText(canvas, mText, mLength, mTimePaint, mMode, mX, mY);
+                drawDayDate(canvas, mMode);
+            }
+        };
+        /* The hands are cached in mHandSprites; a recording is the angles and alpha to draw them at. */
+        private final SceneGraph.Node<Canvas> mHandsNode = new SceneGraph.Node<Canvas>() {
+            private int mMode;
+            private int mHourAngle;
+            private int mMinuteAngle;
+            private int mAlpha;
+
+            @Override
+            public void record() {
+                mMode = getDialMode();
+                mHourAngle = mFrameClock.angles.hour;
+                mMinuteAngle = mFrameClock.angles.minute;
+                mAlpha = getHandAlpha();
+            }
+
+            @Override
+            public void draw(Canvas canvas) {
+                drawHands(canvas, mMode, mHourAngle, mMinuteAngle, mAlpha);
+            }
+        };
+        private final SceneGraph.Node<Canvas> mSecondHandNode = new SceneGraph.Node<Canvas>() {
+            private int mMode;
+            private int mSecondAngle;
+            private int mAlpha;
+
+            @Override
+            public void record() {
+                mMode = getDialMode();
+                mSecondAngle = isSecondHandShown() ? mFrameClock.angles.second : -1;
+                mAlpha = getSecondHandAlpha();
+            }
+
+            @Override
+            public void draw(Canvas canvas) {
+                drawSecondHand(canvas, mMode, mSecondAngle, mAlpha);
+            }
+        };
+        /*
+         * The ambient frame for the next minute is rendered right after the current one is shown,
+         * so onTimeTick() only has to swap it in. Anything that changes ambient content other
+         * than the time bumps mAmbientContentVersion, which makes the prepared frame stale and
+         * the tick falls back to rendering live.
+         */
+        private final Canvas mPreparedAmbientCanvas = new Canvas();
+        private final Rect mSurfaceBounds = new Rect();
+        private long mPreparedAmbientMinute = -1;
+        private int mPreparedAmbientVersion;
+        private int mPreparedComplicationGenerations;
+        private int mAmbientContentVersion;
+        private int mPreparedAmbientHits;
+        private int mPreparedAmbientMisses;
+        /*
+         * Every ambient frame is measured for lit pixels, OLED power, and the face is cut down a
+         * level whenever one goes over budget. With burn-in protection the frame is also shifted
+         * a few pixels every minute, see PixelShift.
+         */
+        private AmbientPowerBudget mAmbientPowerBudget;
+        private int mPixelShiftPx;
+        private DirtyRegionTracker mDirtyRegion;
+        private final Rect mElementBounds = new Rect();
+        private final Rect mTimeTextBounds = new Rect();
+        private final Rect mBatteryBounds = new Rect();
+        private final Rect mDisconnectBounds = new Rect();
+        private final Rect mDisconnectIconBounds = new Rect();
+        private final Rect mSpriteBounds = new Rect();
+        /*
+         * Complications are rendered on their own thread, which owns the ComplicationDrawables;
+         * onDraw() only blits the latest finished layers.
+         */
+        private ComplicationRenderThread mComplicationRenderThread;
+        /*
+         * Updates pass through here first: unchanged data is dropped and updates arriving close
+         * together reach the render thread as one batch.
+         */
+        private ComplicationUpdateCoalescer mComplicationUpdates;
+        private final ComplicationUpdateCoalescer.Listener mComplicationUpdateListener =
+                new ComplicationUpdateCoalescer.Listener() {
+            @Override
+            public void onComplicationData(int slot, ComplicationData complicationData) {
+                mComplicationDataSparseArray.put(COMPLICATION_IDS[slot], complicationData);
+                mComplicationRenderThread.setComplicationData(slot, complicationData);
+                mComplicationRefresh.setComplicationData(slot, complicationData, System.currentTimeMillis());
+                /* The frame is invalidated once the new rendering is published. */
+                mAmbientContentVersion++;
+            }
+        };
+        /* Renders slots again when their time-dependent text or active state changes. */
+        private ComplicationRefreshScheduler mComplicationRefresh;
+        private final ComplicationRefreshScheduler.Listener mComplicationRefreshListener =
+                new ComplicationRefreshScheduler.Listener() {
+            @Override
+            public void onComplicationRefresh(int slot) {
+                mComplicationRenderThread.requestRender(slot);
+                mAmbientContentVersion++;
+            }
+        };
         private boolean mAmbient;
         private boolean mLowBitAmbient;
         private boolean mBurnInProtection;
         private SparseArray<ComplicationData> mComplicationDataSparseArray;
-        private SparseArray<ComplicationDrawable> mComplicationDrawableSparseArray;
         private boolean mDimHands;
-        float mBatteryLevel;
-        Intent mBatteryStatus;
-        long mBatteryChecked;
-        Drawable mMarvinDrawable;
-        Bitmap mMarvinBitmap;
-        Drawable mEarthDrawable;
-        Bitmap mEarthBitmap;
-        Drawable mStarDrawable;
-        Bitmap mStarBitmap;
-        Drawable mCometDrawable;
-        Bitmap mCometBitmap;
-        Drawable mSaturnDrawable;
-        Bitmap mSaturnBitmap;
-        Drawable mDisconnectDrawable;
-        Bitmap mDisonnectBitmap;
-
+        /* Battery state cached from ACTION_BATTERY_CHANGED broadcasts while visible. */
+        private final BatteryGauge mBatteryGauge = new BatteryGauge(36);
+        private final int[] mBatteryColors = {
+                Color.rgb(0x00, 0xFF, 0x00),
+                Color.rgb(0xFF, 0xFF, 0x00),
+                Color.rgb(0xFF, 0xA5, 0x00),
+                Color.rgb(0xFF, 0x00, 0x00)
+        };
         Date mDate;
-        SimpleDateFormat mDayOfWeekFormat;
+        /* Built on first use, see getDayDateFormat(). */
         SimpleDateFormat mDayDateFormat;
-        java.text.DateFormat mDateFormat;
 
         @Override
         public void onCreate(SurfaceHolder holder) {
+            mCreatedNanos = SystemClock.elapsedRealtimeNanos();
             super.onCreate(holder);
 
             setWatchFaceStyle(new WatchFaceStyle.Builder(ComplicationWatchFaceService.this)
                     .setAcceptsTapEvents(true)
                     .build());
 
-            mWearableConnected = true;
             mCalendar = Calendar.getInstance();
             mDate = new Date();
             mDimHands = false;
-            mBatteryLevel = -1;
-            mBatteryChecked = System.currentTimeMillis();
-            mMarvinDrawable = getResources().getDrawable(R.drawable.marvin, null);
-            mMarvinBitmap = ((BitmapDrawable) mMarvinDrawable).getBitmap();
-            mEarthDrawable = getResources().getDrawable(R.drawable.earth, null);
-            mEarthBitmap = ((BitmapDrawable) mEarthDrawable).getBitmap();
-            mStarDrawable = getResources().getDrawable(R.drawable.star, null);
-            mStarBitmap = ((BitmapDrawable) mStarDrawable).getBitmap();
-            mCometDrawable = getResources().getDrawable(R.drawable.comet, null);
-            mCometBitmap = ((BitmapDrawable) mCometDrawable).getBitmap();
-            mSaturnDrawable = getResources().getDrawable(R.drawable.saturn, null);
-            mSaturnBitmap = ((BitmapDrawable) mSaturnDrawable).getBitmap();
-            mDisconnectDrawable = getResources().getDrawable(R.drawable.disconnect, null);
-            mDisonnectBitmap = ((BitmapDrawable) mDisconnectDrawable).getBitmap();
-
-            initFormats();
+            mPreferences = WatchFacePreferences.get(ComplicationWatchFaceService.this);
+            mFrameScheduler.setMode(WatchFacePreferences.getUpdateMode(mPreferences));
+            mPreferences.registerOnSharedPreferenceChangeListener(mPreferenceListener);
+            mEventRecorder = new EventRecorder(getFilesDir(), BuildConfig.DEBUG);
+            mConnectivityState = ConnectivityState.get(ComplicationWatchFaceService.this);
+            mWearableConnected = mConnectivityState.isConnected();
+            mConnectivityState.addListener(mConnectivityListener);
+            mShowDebugOverlay = WatchFacePreferences.getDebugOverlay(mPreferences);
+            /* Sprites and the background are decoded in onSurfaceChanged(), at their drawn size. */
+            mBitmapAssets = new BitmapAssets(getResources(),
+                    getResources().getInteger(R.integer.bitmap_budget_kib) * 1024L);
+            mAssetLoader = new AssetLoader(getResources(), mAssetListener);
+            mAmbientPowerBudget = new AmbientPowerBudget(
+                    getResources().getInteger(R.integer.ambient_lit_pixel_budget_percent) / 100f);
+            mPixelShiftPx = getResources().getInteger(R.integer.ambient_pixel_shift_px);
+
             initializeBackground();
             initialComplications();
             initializeWatchFace();
+            initializeScene();
         }
 
 
+        private void initializeScene() {
+            mScene.setNode(NODE_DIAL, mDialNode);
+            mScene.setNode(NODE_BATTERY, mBatteryNode);
+            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+                mScene.setNode(NODE_COMPLICATION + i, newComplicationNode(i));
+            }
+            mScene.setNode(NODE_DISCONNECT, mDisconnectNode);
+            mScene.setNode(NODE_TIME_TEXT, mTimeTextNode);
+            mScene.setNode(NODE_HANDS, mHandsNode);
+            mScene.setNode(NODE_SECOND_HAND, mSecondHandNode);
+        }
+
+        /*
+         * The render thread records complication layers; a node only composites the newest one,
+         * so its own recording is empty.
+         */
+        private SceneGraph.Node<Canvas> newComplicationNode(final int slot) {
+            return new SceneGraph.Node<Canvas>() {
+                @Override
+                public void record() {
+                }
+
+                @Override
+                public void draw(Canvas canvas) {
+                    drawComplication(canvas, slot);
+                }
+            };
+        }
+
         private void initializeBackground() {
             mBackgroundPaint = new Paint();
             mBackgroundPaint.setColor(Color.BLACK);
-            mBackgroundBitmap = BitmapFactory.decodeResource(getResources(), R.drawable.bg);
+            /* The ambient backgrounds are luminance only, so they are tinted white over black. */
+            mGrayBackgroundPaint = new Paint();
+            mGrayBackgroundPaint.setColor(Color.WHITE);
         }
 
-        private void initFormats() {
-            mDayOfWeekFormat = new SimpleDateFormat("EEEE", Locale.getDefault());
-            mDayOfWeekFormat.setCalendar(mCalendar);
-            mDateFormat = DateFormat.getDateFormat(ComplicationWatchFaceService.this);
-            mDateFormat.setCalendar(mCalendar);
-            mDayDateFormat = new SimpleDateFormat("EEE MMM d", Locale.getDefault());
-            mDayDateFormat.setCalendar(mCalendar);
+        /*
+         * Built when the day/date text is first drawn, not in onCreate(), and again after a
+         * locale change. With SHOW_DAY_DATE off it is never built.
+         */
+        private SimpleDateFormat getDayDateFormat() {
+            if (mDayDateFormat == null) {
+                mDayDateFormat = new SimpleDateFormat("EEE MMM d", Locale.getDefault());
+                mDayDateFormat.setCalendar(mCalendar);
+            }
+            return mDayDateFormat;
         }
 
         private void initialComplications() {
@@ -280,11 +610,6 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
             ComplicationDrawable centerComplicationDrawable = new ComplicationDrawable(getApplicationContext());
             ComplicationDrawable rightComplicationDrawable = new ComplicationDrawable(getApplicationContext());
 
-            mComplicationDrawableSparseArray = new SparseArray<>(COMPLICATION_IDS.length);
-            mComplicationDrawableSparseArray.put(LEFT_COMPLICATION_ID, leftComplicationDrawable);
-            mComplicationDrawableSparseArray.put(CENTER_COMPLICATION_ID, centerComplicationDrawable);
-            mComplicationDrawableSparseArray.put(RIGHT_COMPLICATION_ID, rightComplicationDrawable);
-
             leftComplicationDrawable.setBackgroundColorActive(Color.BLACK);
             centerComplicationDrawable.setBackgroundColorActive(Color.BLACK);
             rightComplicationDrawable.setBackgroundColorActive(Color.BLACK);
@@ -297,15 +622,18 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
             centerComplicationDrawable.setBorderColorActive(Color.parseColor("#FFFFFF"));
             rightComplicationDrawable.setBorderColorActive(Color.parseColor("#673AB7"));
 
-            int diameter = 96;
-            Rect leftBounds =   new Rect (64,  144, 64+diameter,  144+diameter);
-            Rect centerBounds = new Rect (153, 232, 153+diameter, 232+diameter);
-            Rect rightBounds =  new Rect (241, 144, 241+diameter, 144+diameter);
-
-            leftComplicationDrawable.setBounds(leftBounds);
-            centerComplicationDrawable.setBounds(centerBounds);
-            rightComplicationDrawable.setBounds(rightBounds);
-
+            /* Bounds come from mLayout, see onSurfaceChanged(). From here on the drawables belong to the render thread. */
+            mComplicationRenderThread = new ComplicationRenderThread(new ComplicationDrawable[] {
+                    leftComplicationDrawable, centerComplicationDrawable, rightComplicationDrawable
+            }, new ComplicationRenderThread.Listener() {
+                @Override
+                public void onComplicationRendered(int slot) {
+                    postInvalidate();
+                }
+            });
+            mComplicationUpdates = new ComplicationUpdateCoalescer(COMPLICATION_IDS.length,
+                    getResources().getInteger(R.integer.complication_update_window_ms), mComplicationUpdateListener);
+            mComplicationRefresh = new ComplicationRefreshScheduler(COMPLICATION_IDS.length, mComplicationRefreshListener);
             setDefaultSystemComplicationProvider(LEFT_COMPLICATION_ID, SystemProviders.UNREAD_NOTIFICATION_COUNT, ComplicationData.TYPE_SHORT_TEXT);
             setDefaultSystemComplicationProvider(CENTER_COMPLICATION_ID, SystemProviders.STEP_COUNT, ComplicationData.TYPE_SHORT_TEXT);
             setDefaultSystemComplicationProvider(RIGHT_COMPLICATION_ID, SystemProviders.WATCH_BATTERY, ComplicationData.TYPE_SHORT_TEXT);
@@ -320,43 +648,117 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
             mWatchHandHighlightColor = Color.RED;
             mWatchHandShadowColor = Color.BLACK;
 
+            float shadowRadius = mLayout.table[FaceLayout.SHADOW_RADIUS];
+
             mHourPaint = new Paint();
             mHourPaint.setColor(mWatchHandColor);
-            mHourPaint.setStrokeWidth(HOUR_STROKE_WIDTH);
             mHourPaint.setAntiAlias(true);
             mHourPaint.setStrokeCap(Paint.Cap.ROUND);
-            mHourPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            mHourPaint.setShadowLayer(shadowRadius, 0, 0, mWatchHandShadowColor);
 
             mMinutePaint = new Paint();
             mMinutePaint.setColor(mWatchHandColor);
-            mMinutePaint.setStrokeWidth(MINUTE_STROKE_WIDTH);
             mMinutePaint.setAntiAlias(true);
             mMinutePaint.setStrokeCap(Paint.Cap.ROUND);
-            mMinutePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            mMinutePaint.setShadowLayer(shadowRadius, 0, 0, mWatchHandShadowColor);
 
             mSecondPaint = new Paint();
             mSecondPaint.setColor(mWatchHandHighlightColor);
-            mSecondPaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
             mSecondPaint.setAntiAlias(true);
             mSecondPaint.setStrokeCap(Paint.Cap.ROUND);
-            mSecondPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+            mSecondPaint.setShadowLayer(shadowRadius, 0, 0, mWatchHandShadowColor);
 
             mTickAndCirclePaint = new Paint();
             mTickAndCirclePaint.setColor(mWatchTickColor);
-            mTickAndCirclePaint.setStrokeWidth(MINUTE_STROKE_WIDTH);
             mTickAndCirclePaint.setAntiAlias(true);
             mTickAndCirclePaint.setStyle(Paint.Style.STROKE);
-            mTickAndCirclePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-            mTickAndCirclePaint.setTextSize(48);
+            mTickAndCirclePaint.setShadowLayer(shadowRadius, 0, 0, mWatchHandShadowColor);
 
             mDayDatePaint = new Paint();
             mDayDatePaint.setColor(mWatchTickColor);
-            mDayDatePaint.setTextSize(32);
+
+            mTimePaint = new Paint();
+            mTimePaint.setARGB(0xFF, 0xFF, 0xFF, 0xFF);
+
+            mBatteryPaint = new Paint();
+
+            mDisconnectPaint = new Paint();
+            mDisconnectPaint.setColor(Color.BLACK);
+
+            mDebugOverlayPaint = new Paint();
+            mDebugOverlayPaint.setColor(Color.GREEN);
+            mDebugOverlayPaint.setAntiAlias(true);
+            mDebugOverlayPaint.setTypeface(Typeface.MONOSPACE);
+            mDebugOverlayPaint.setShadowLayer(2, 0, 0, Color.BLACK);
+
+            applyLayoutToPaints();
+        }
+
+        /* Sets the layout-dependent stroke widths and text sizes on the paints. */
+        private void applyLayoutToPaints() {
+            float[] layout = mLayout.table;
+            mHourPaint.setStrokeWidth(layout[FaceLayout.HOUR_STROKE_WIDTH]);
+            mMinutePaint.setStrokeWidth(layout[FaceLayout.MINUTE_STROKE_WIDTH]);
+            mSecondPaint.setStrokeWidth(layout[FaceLayout.SECOND_STROKE_WIDTH]);
+            mTickAndCirclePaint.setStrokeWidth(layout[FaceLayout.MINUTE_STROKE_WIDTH]);
+            mTickAndCirclePaint.setTextSize(layout[FaceLayout.NUMERAL_TEXT_SIZE]);
+            mDayDatePaint.setTextSize(layout[FaceLayout.DAY_DATE_TEXT_SIZE]);
+            mTimePaint.setTextSize(layout[FaceLayout.TIME_TEXT_SIZE]);
+            /* The cache is keyed on the paint, not its size, so text rasterised at the old size goes. */
+            mTextCache.clear();
+            mDebugOverlayPaint.setTextSize(layout[FaceLayout.SCALE] * 16);
+            updateWatchHandStyle();
         }
 
         @Override
         public void onDestroy() {
             mUpdateTimeHandler.removeMessages(MSG_UPDATE_TIME);
+            mPreferences.unregisterOnSharedPreferenceChangeListener(mPreferenceListener);
+            mConnectivityState.removeListener(mConnectivityListener);
+            mUpdateTimeHandler.removeMessages(MSG_PREPARE_AMBIENT_FRAME);
+            releasePreparedAmbientFrame();
+            mAssetLoader.release();
+            mBitmapAssets.release();
+            mAllocationTracker.release();
+            mEventRecorder.release();
+            mComplicationUpdates.release();
+            mComplicationRefresh.release();
+            mComplicationRenderThread.release();
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, "Complication updates: " + mComplicationUpdates.getReceivedCount() + " received, "
+                        + mComplicationUpdates.getDroppedCount() + " unchanged, "
+                        + mComplicationUpdates.getCoalescedCount() + " coalesced into "
+                        + mComplicationUpdates.getBatchCount() + " batches, "
+                        + mComplicationRefresh.getRefreshCount() + " time-dependent refreshes.");
+                Log.d(TAG, "Complications: " + mComplicationRenderThread.getRenderCount() + " renders at "
+                        + mComplicationRenderThread.getAverageRenderNanos() + " ns on the render thread.");
+                Log.d(TAG, "Frames: p50 " + mFrameStats.getPercentileNanos(FrameStats.STAGE_FRAME, 50)
+                        + " ns, p99 " + mFrameStats.getPercentileNanos(FrameStats.STAGE_FRAME, 99) + " ns, "
+                        + mFrameStats.getJankFrameCount() + " over " + FrameStats.JANK_BUDGET_NANOS + " ns.");
+                Log.d(TAG, "Wakeups: " + mFrameScheduler.getWakeupCount() + " in "
+                        + mFrameScheduler.getMode() + " mode.");
+                if (mDirtyRegion != null) {
+                    Log.d(TAG, "Dirty region: " + mDirtyRegion.getAverageDirtyFraction()
+                            + " of the surface redrawn per frame on average.");
+                }
+                Log.d(TAG, "Connectivity: " + mConnectivityState.getSuppressedFlaps() + " flaps suppressed.");
+                Log.d(TAG, "Allocations: " + mAllocationTracker.getAllocatingFrameCount() + " of "
+                        + mAllocationTracker.getFrameCount() + " frames allocated, max "
+                        + mAllocationTracker.getMaxFrameAllocations() + " objects.");
+                Log.d(TAG, "Prepared ambient frames: " + mPreparedAmbientHits + " used, "
+                        + mPreparedAmbientMisses + " stale.");
+                Log.d(TAG, "Ambient lit pixels: " + mAmbientPowerBudget.getMeasuredFrames() + " frames, max "
+                        + mAmbientPowerBudget.getMaxRatio() + ", " + mAmbientPowerBudget.getOverBudgetFrames()
+                        + " over " + mAmbientPowerBudget.getBudgetRatio() + ", level "
+                        + mAmbientPowerBudget.getLevel() + ".");
+                Log.d(TAG, "Scene: " + mScene.getRecordCount() + " node recordings, "
+                        + mScene.getReplayCount() + " replays.");
+                Log.d(TAG, "Assets: " + mAssetLoader.getDecodeCount() + " decoded in the background at "
+                        + mAssetLoader.getAverageDecodeNanos() + " ns, all loaded "
+                        + mAssetsLoadedNanos / 1000000 + " ms after engine creation.");
+            }
+            mTextCache.release();
+            mHandSprites.release();
             super.onDestroy();
         }
 
@@ -366,42 +768,47 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
             mLowBitAmbient = properties.getBoolean(PROPERTY_LOW_BIT_AMBIENT, false);
             mBurnInProtection = properties.getBoolean(PROPERTY_BURN_IN_PROTECTION, false);
 
-            ComplicationDrawable complicationDrawable;
-            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
-                complicationDrawable = mComplicationDrawableSparseArray.get(COMPLICATION_IDS[i]);
-                complicationDrawable.setLowBitAmbient(mLowBitAmbient);
-                complicationDrawable.setBurnInProtection(mBurnInProtection);
-            }
+            mComplicationRenderThread.setMode(mAmbient, mLowBitAmbient, mBurnInProtection);
+            updateAmbientBackgrounds();
+            mAmbientPowerBudget.reset();
+            invalidateDialLayers();
         }
 
         @Override
         public void onComplicationDataUpdate(int complicationId, ComplicationData complicationData) {
-            mComplicationDataSparseArray.put(complicationId, complicationData);
-            ComplicationDrawable complicationDrawable = mComplicationDrawableSparseArray.get(complicationId);
-            complicationDrawable.setComplicationData(complicationData);
-            invalidate();
+            mEventRecorder.record(EventTrace.TYPE_COMPLICATION_DATA, complicationId, complicationData.getType(), 0);
+            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+                if (COMPLICATION_IDS[i] == complicationId) {
+                    mComplicationUpdates.offer(i, complicationData);
+                }
+            }
         }
 
         @Override
         public void onTimeTick() {
             super.onTimeTick();
-            if (mDimHands) { mDimHands = false; }
+            if (mDimHands) { mDimHands = false; mAmbientContentVersion++; }
+            mComplicationRefresh.onTimeTick(System.currentTimeMillis());
             invalidate();
         }
 
         @Override
         public void onAmbientModeChanged(boolean inAmbientMode) {
             super.onAmbientModeChanged(inAmbientMode);
+            mEventRecorder.record(EventTrace.TYPE_AMBIENT, inAmbientMode);
             mAmbient = inAmbientMode;
 
+            /* Hand style also styles the ticks, so the new mode's dial layer is picked up lazily. */
             updateWatchHandStyle();
 
-            ComplicationDrawable complicationDrawable;
-            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
-                complicationDrawable = mComplicationDrawableSparseArray.get(COMPLICATION_IDS[i]);
-                complicationDrawable.setInAmbientMode(mAmbient);
+            mComplicationRenderThread.setMode(mAmbient, mLowBitAmbient, mBurnInProtection);
+            if (!mAmbient) {
+                /* Only needed in ambient; the next ambient period prepares a new one. */
+                mUpdateTimeHandler.removeMessages(MSG_PREPARE_AMBIENT_FRAME);
+                releasePreparedAmbientFrame();
             }
 
+            invalidateFrame();
             /* Check and trigger whether or not timer should be running (only in active mode). */
             updateTimer();
         }
@@ -434,10 +841,11 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
                 mSecondPaint.setAntiAlias(true);
                 mTickAndCirclePaint.setAntiAlias(true);
 
-                mHourPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mMinutePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mSecondPaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
-                mTickAndCirclePaint.setShadowLayer(SHADOW_RADIUS, 0, 0, mWatchHandShadowColor);
+                float shadowRadius = mLayout.table[FaceLayout.SHADOW_RADIUS];
+                mHourPaint.setShadowLayer(shadowRadius, 0, 0, mWatchHandShadowColor);
+                mMinutePaint.setShadowLayer(shadowRadius, 0, 0, mWatchHandShadowColor);
+                mSecondPaint.setShadowLayer(shadowRadius, 0, 0, mWatchHandShadowColor);
+                mTickAndCirclePaint.setShadowLayer(shadowRadius, 0, 0, mWatchHandShadowColor);
             }
         }
 
@@ -449,10 +857,7 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
             /* Dim display in mute mode. */
             if (mMuteMode != inMuteMode) {
                 mMuteMode = inMuteMode;
-                mHourPaint.setAlpha(inMuteMode ? 100 : 255);
-                mMinutePaint.setAlpha(inMuteMode ? 100 : 255);
-                mSecondPaint.setAlpha(inMuteMode ? 80 : 255);
-                invalidate();
+                invalidateFrame();
             }
         }
 
@@ -465,51 +870,158 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
              * insets, so that, on round watches with a "chin", the watch face is centered on the
              * entire screen, not just the usable portion.
              */
-            mCenterX = width / 2f;
-            mCenterY = height / 2f;
+            mSurfaceWidth = width;
+            mSurfaceHeight = height;
 
             /*
-             * Calculate lengths of different hands based on watch screen size.
+             * Derive positions, sizes and hand lengths from the watch screen size, so the face
+             * lays out the same on 320 to 454 px screens.
              */
-            mSecondHandLength = (float) (mCenterX * 0.875);
-            sMinuteHandLength = (float) (mCenterX * 0.70);
-            sHourHandLength = (float) (mCenterX * 0.5);
+            mLayout.compute(width, height);
+            float[] layout = mLayout.table;
+            mCenterX = layout[FaceLayout.CENTER_X];
+            mCenterY = layout[FaceLayout.CENTER_Y];
+            applyLayoutToPaints();
+            mTickGeometry.update(mCenterX, mCenterY, layout);
+
+            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+                int index = FaceLayout.COMPLICATIONS + 4 * i;
+                mComplicationRenderThread.setBounds(i,
+                        (int) layout[index], (int) layout[index + 1], (int) layout[index + 2], (int) layout[index + 3]);
+            }
+            mBatteryGauge.setGaugeHeight((int) layout[FaceLayout.BATTERY_EMPTY_MAX_HEIGHT]);
+            setBounds(mBatteryBounds, layout, FaceLayout.BATTERY_BOUNDS);
+            setBounds(mDisconnectBounds, layout, FaceLayout.DISCONNECT_BADGE);
+            decodeBitmaps(width, height);
+
+            mFrameCanvas.setBitmap(mBitmapAssets.create(BitmapAssets.FRAME, width, height, Bitmap.Config.ARGB_8888));
+            mSurfaceBounds.set(0, 0, width, height);
+            releasePreparedAmbientFrame();
+            mDirtyRegion = new DirtyRegionTracker(NODE_COUNT, width, height);
+            mScene.setBounds(NODE_DIAL, 0, 0, width, height);
+            mBatteryNode.setSize(width, height);
+            mDisconnectNode.setSize(width, height);
+            mScene.invalidateAll();
+
+            /* Covers the widest time text, "12:59", at both its interactive and ambient offsets. */
+            Paint.FontMetrics timeMetrics = mTimePaint.getFontMetrics();
+            mTimeTextBounds.set((int) layout[FaceLayout.TIME_X_LONG] - 2,
+                    (int) (layout[FaceLayout.TIME_Y_AMBIENT] + timeMetrics.ascent) - 2,
+                    (int) (layout[FaceLayout.TIME_X_SHORT] + mTimePaint.measureText("12:59")) + 2,
+                    (int) (layout[FaceLayout.TIME_Y] + timeMetrics.descent) + 2);
+
+            updateAmbientBackgrounds();
+            mAmbientPowerBudget.reset();
+            invalidateDialLayers();
+            mHandSprites.invalidate();
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, "Bitmaps: " + mBitmapAssets.getTotalBytes() + " of "
+                        + mBitmapAssets.getBudgetBytes() + " bytes.");
+            }
+        }
 
+        /*
+         * The gray background is only used where it looks nice in ambient mode, i.e. not with
+         * burn-in protection (slight movements in pixels, not great for images going all the way
+         * to edges) nor low-bit ambient (degrades image quality). Low-bit ambient without burn-in
+         * protection gets the dithered black and white background instead. Both come from the
+         * build; only screens without variants fall back to filtering on the device.
+         */
+        private void updateAmbientBackgrounds() {
+            if (mBitmapAssets.get(BitmapAssets.BACKGROUND) == null) {
+                return;
+            }
+            if (usesGrayBackground()) {
+                if (mAssetVariant < 0) {
+                    mBitmapAssets.createLuminance(BitmapAssets.GRAY_BACKGROUND, BitmapAssets.BACKGROUND);
+                } else if (mBitmapAssets.get(BitmapAssets.GRAY_BACKGROUND) == null) {
+                    mAssetLoader.requestExact(BitmapAssets.GRAY_BACKGROUND,
+                            mBitmapAssets.getVariantResource(R.array.bg_gray_variants, mAssetVariant),
+                            Bitmap.Config.ALPHA_8);
+                }
+            } else {
+                mBitmapAssets.recycle(BitmapAssets.GRAY_BACKGROUND);
+            }
+            if (usesLowBitBackground()) {
+                if (mBitmapAssets.get(BitmapAssets.LOW_BIT_BACKGROUND) == null) {
+                    mAssetLoader.requestExact(BitmapAssets.LOW_BIT_BACKGROUND,
+                            mBitmapAssets.getVariantResource(R.array.bg_lowbit_variants, mAssetVariant),
+                            Bitmap.Config.ALPHA_8);
+                }
+            } else {
+                mBitmapAssets.recycle(BitmapAssets.LOW_BIT_BACKGROUND);
+            }
+        }
 
-            /* Scale loaded background image (more efficient) if surface dimensions change. */
-            float scale = ((float) width) / (float) mBackgroundBitmap.getWidth();
+        private boolean usesGrayBackground() {
+            return !mBurnInProtection && !mLowBitAmbient;
+        }
 
-            mBackgroundBitmap = Bitmap.createScaledBitmap(mBackgroundBitmap,
-                    (int) (mBackgroundBitmap.getWidth() * scale),
-                    (int) (mBackgroundBitmap.getHeight() * scale), true);
+        private boolean usesLowBitBackground() {
+            return mLowBitAmbient && !mBurnInProtection && mAssetVariant >= 0;
+        }
 
-            /*
-             * Create a gray version of the image only if it will look nice on the device in
-             * ambient mode. That means we don't want devices that support burn-in
-             * protection (slight movements in pixels, not great for images going all the way to
-             * edges) and low ambient mode (degrades image quality).
-             *
-             * Also, if your watch face will know about all images ahead of time (users aren't
-             * selecting their own photos for the watch face), it will be more
-             * efficient to create a black/white version (png, etc.) and load that when you need it.
-             */
-            if (!mBurnInProtection && !mLowBitAmbient) {
-                initGrayBackgroundBitmap();
+        /*
+         * Decodes the background at the surface width and the sprites at their density size
+         * times the layout scale, so both are drawn 1:1. The build pre-scales them for common
+         * screens; other screens have them resampled while decoding. The background is opaque,
+         * so it is decoded without alpha in RGB_565.
+         * <p>
+         * The background is all the first frame needs, so only it is decoded here. The sprites
+         * are requested from the loader thread, once per surface size.
+         */
+        private void decodeBitmaps(int width, int height) {
+            mAssetVariant = mBitmapAssets.findVariant(width);
+            if (mAssetVariant >= 0) {
+                mBitmapAssets.decodeExact(BitmapAssets.BACKGROUND,
+                        mBitmapAssets.getVariantResource(R.array.bg_variants, mAssetVariant), Bitmap.Config.RGB_565);
+            } else {
+                mBitmapAssets.decode(BitmapAssets.BACKGROUND, R.drawable.bg, width, Bitmap.Config.RGB_565);
+            }
+            if (width == mSpriteWidth && height == mSpriteHeight) {
+                return;
             }
+            mSpriteWidth = width;
+            mSpriteHeight = height;
+            /* Anything decoded for the old size is stale, the ambient backgrounds included. */
+            mAssetLoader.cancel();
+            mBitmapAssets.recycle(BitmapAssets.GRAY_BACKGROUND);
+            mBitmapAssets.recycle(BitmapAssets.LOW_BIT_BACKGROUND);
+            float spriteScale = getResources().getDisplayMetrics().densityDpi / 160f * mLayout.table[FaceLayout.SCALE];
+            requestSprite(BitmapAssets.MARVIN, R.drawable.marvin, R.array.marvin_variants, spriteScale);
+            requestSprite(BitmapAssets.EARTH, R.drawable.earth, R.array.earth_variants, spriteScale);
+            requestSprite(BitmapAssets.COMET, R.drawable.comet, R.array.comet_variants, spriteScale);
+            requestSprite(BitmapAssets.SATURN, R.drawable.saturn, R.array.saturn_variants, spriteScale);
+            requestSprite(BitmapAssets.DISCONNECT, R.drawable.disconnect, R.array.disconnect_variants, spriteScale);
+        }
+
+        /* The slot stays empty, and the sprite undrawn, until the loader delivers it. */
+        private void requestSprite(int slot, int resId, int variantsId, float scale) {
+            mBitmapAssets.recycle(slot);
+            int variantResId = (mAssetVariant >= 0) ? mBitmapAssets.getVariantResource(variantsId, mAssetVariant) : 0;
+            mAssetLoader.requestScaled(slot, resId, variantResId, scale, Bitmap.Config.ARGB_8888);
         }
 
-        private void initGrayBackgroundBitmap() {
-            mGrayBackgroundBitmap = Bitmap.createBitmap(
-                    mBackgroundBitmap.getWidth(),
-                    mBackgroundBitmap.getHeight(),
-                    Bitmap.Config.ARGB_8888);
-            Canvas canvas = new Canvas(mGrayBackgroundBitmap);
-            Paint grayPaint = new Paint();
-            ColorMatrix colorMatrix = new ColorMatrix();
-            colorMatrix.setSaturation(0);
-            ColorMatrixColorFilter filter = new ColorMatrixColorFilter(colorMatrix);
-            grayPaint.setColorFilter(filter);
-            canvas.drawBitmap(mBackgroundBitmap, 0, 0, grayPaint);
+        private void setBounds(Rect bounds, float[] layout, int index) {
+            bounds.set((int) layout[index], (int) layout[index + 1], (int) layout[index + 2], (int) layout[index + 3]);
+        }
+
+        /* Places a sprite at a layout point; sprites are decoded at their drawn size. */
+        private void setSpriteBounds(Rect bounds, int slot, int index) {
+            Bitmap sprite = mBitmapAssets.get(slot);
+            int left = (int) mLayout.table[index];
+            int top = (int) mLayout.table[index + 1];
+            bounds.set(left, top, left + sprite.getWidth(), top + sprite.getHeight());
+        }
+
+        /* Forces the next frame to be recomposed in full, then invalidates. */
+        private void invalidateFrame() {
+            if (mDirtyRegion != null) {
+                mDirtyRegion.invalidateAll();
+            }
+            mScene.invalidateAll();
+            mAmbientContentVersion++;
+            invalidate();
         }
 
         /**
@@ -518,6 +1030,7 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
          */
         @Override
         public void onTapCommand(int tapType, int x, int y, long eventTime) {
+            mEventRecorder.record(EventTrace.TYPE_TAP, tapType, Math.max(0, x), Math.max(0, y));
             switch (tapType) {
                 case TAP_TYPE_TOUCH:
                     // The user has started touching the screen.
@@ -527,6 +1040,7 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
                     break;
                 case TAP_TYPE_TAP:
                     mDimHands = !mDimHands;
+                    mAmbientContentVersion++;
                     // The user has completed the tap gesture.
                     // TODO: Add code to handle the tap gesture.
 ////                    Toast.makeText(getApplicationContext(), R.string.message, Toast.LENGTH_SHORT).show();
@@ -543,32 +1057,20 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
          * Determines if tap inside a complication area or returns -1.
          */
         private int getTappedComplicationId(int x, int y) {
-            int complicationId;
-            ComplicationData complicationData;
-            ComplicationDrawable complicationDrawable;
+            int slot = mLayout.findComplication(x, y);
+            if (slot == -1) {
+                return -1;
+            }
+            int complicationId = COMPLICATION_IDS[slot];
+            ComplicationData complicationData = mComplicationDataSparseArray.get(complicationId);
 
             long currentTimeMillis = System.currentTimeMillis();
 
-            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
-                complicationId = COMPLICATION_IDS[i];
-                complicationData = mComplicationDataSparseArray.get(complicationId);
-
-                if ((complicationData != null)
-                        && (complicationData.isActive(currentTimeMillis))
-                        && (complicationData.getType() != ComplicationData.TYPE_NOT_CONFIGURED)
-                        && (complicationData.getType() != ComplicationData.TYPE_EMPTY)) {
-
-                    complicationDrawable = mComplicationDrawableSparseArray.get(complicationId);
-                    Rect complicationBoundingRect = complicationDrawable.getBounds();
-
-                    if (complicationBoundingRect.width() > 0) {
-                        if (complicationBoundingRect.contains(x, y)) {
-                            return complicationId;
-                        }
-                    } else {
-                        Log.e(TAG, "Not a recognized complication id.");
-                    }
-                }
+            if ((complicationData != null)
+                    && (complicationData.isActive(currentTimeMillis))
+                    && (complicationData.getType() != ComplicationData.TYPE_NOT_CONFIGURED)
+                    && (complicationData.getType() != ComplicationData.TYPE_EMPTY)) {
+                return complicationId;
             }
             return -1;
         }
@@ -609,214 +1111,578 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
 
         @Override
         public void onDraw(Canvas canvas, Rect bounds) {
+            mAllocationTracker.beginFrame();
+            mFrameStats.begin(FrameStats.STAGE_FRAME);
+            mFrameClock.update(System.currentTimeMillis(), mFrameScheduler.isSweeping());
+
+            Rect dirty = updateDirtyRegion();
+            /* A prepared frame is complete; the dirty rect then only brought the tracker up to date. */
+            boolean prepared = mAmbient && swapInPreparedAmbientFrame();
+            if (!prepared && !dirty.isEmpty()) {
+                mFrameCanvas.save();
+                mFrameCanvas.clipRect(dirty);
+                mScene.setClip(dirty.left, dirty.top, dirty.right, dirty.bottom);
+                mFrameStats.begin(FrameStats.STAGE_DIAL);
+                mScene.draw(mFrameCanvas, NODE_DIAL, NODE_BATTERY);
+                mFrameStats.end(FrameStats.STAGE_DIAL);
+                if (Rect.intersects(dirty, mBatteryBounds)) {
+                    mFrameStats.begin(FrameStats.STAGE_BATTERY);
+                    mScene.draw(mFrameCanvas, NODE_BATTERY, NODE_COMPLICATION);
+                    mFrameStats.end(FrameStats.STAGE_BATTERY);
+                }
+                mFrameStats.begin(FrameStats.STAGE_COMPLICATIONS);
+                mScene.draw(mFrameCanvas, NODE_COMPLICATION, NODE_DISCONNECT);
+                mFrameStats.end(FrameStats.STAGE_COMPLICATIONS);
+                if (Rect.intersects(dirty, mDisconnectBounds)) {
+                    mFrameStats.begin(FrameStats.STAGE_DISCONNECT);
+                    mScene.draw(mFrameCanvas, NODE_DISCONNECT, NODE_TIME_TEXT);
+                    mFrameStats.end(FrameStats.STAGE_DISCONNECT);
+                }
+                mFrameStats.begin(FrameStats.STAGE_WATCH_FACE);
+                mScene.draw(mFrameCanvas, NODE_TIME_TEXT, NODE_COUNT);
+                mFrameStats.end(FrameStats.STAGE_WATCH_FACE);
+                mFrameCanvas.restore();
+                if (mAmbient) {
+                    checkAmbientPowerBudget(mBitmapAssets.get(BitmapAssets.FRAME));
+                }
+            }
+            Bitmap frame = mBitmapAssets.get(BitmapAssets.FRAME);
+            if (mAmbient && mBurnInProtection) {
+                long minute = mFrameClock.epochMillis / FrameScheduler.MINUTE_MS;
+                canvas.drawColor(Color.BLACK);
+                canvas.drawBitmap(frame, PixelShift.offsetX(minute, mPixelShiftPx),
+                        PixelShift.offsetY(minute, mPixelShiftPx), null);
+            } else {
+                canvas.drawBitmap(frame, 0, 0, null);
+            }
+            mFrameStats.end(FrameStats.STAGE_FRAME);
+            if (mAmbient && mPreparedAmbientMinute != mFrameClock.epochMillis / FrameScheduler.MINUTE_MS + 1) {
+                /* Posted, so the frame just drawn is shown before the next one is rendered. */
+                mUpdateTimeHandler.removeMessages(MSG_PREPARE_AMBIENT_FRAME);
+                mUpdateTimeHandler.sendEmptyMessage(MSG_PREPARE_AMBIENT_FRAME);
+            }
+
+            /* Drawn straight onto the surface, so the retained frame never has to be repaired. */
+            if (mShowDebugOverlay && !mAmbient) {
+                drawDebugOverlay(canvas);
+            }
+            mAllocationTracker.endFrame();
+            if (mFirstFrameNanos < 0) {
+                mFirstFrameNanos = SystemClock.elapsedRealtimeNanos() - mCreatedNanos;
+                Log.i(TAG, "First frame " + mFirstFrameNanos / 1000000 + " ms after engine creation.");
+            }
+        }
+
+        /*
+         * Makes the prepared ambient frame the retained frame if it was rendered for this minute
+         * from the current content. The old frame bitmap is reused for the next preparation.
+         */
+        private boolean swapInPreparedAmbientFrame() {
+            if (mPreparedAmbientMinute == -1) {
+                return false;
+            }
+            boolean valid = mPreparedAmbientMinute == mFrameClock.epochMillis / FrameScheduler.MINUTE_MS
+                    && mPreparedAmbientVersion == mAmbientContentVersion
+                    && mPreparedComplicationGenerations == sumComplicationGenerations();
+            mPreparedAmbientMinute = -1;
+            if (!valid) {
+                mPreparedAmbientMisses++;
+                return false;
+            }
+            mBitmapAssets.swap(BitmapAssets.FRAME, BitmapAssets.PREPARED_AMBIENT_FRAME);
+            mFrameCanvas.setBitmap(mBitmapAssets.get(BitmapAssets.FRAME));
+            mPreparedAmbientHits++;
+            return true;
+        }
+
+        /* Renders the whole face, as it will look at the start of the next minute, off screen. */
+        private void prepareAmbientFrame() {
+            if (!mAmbient || !isVisible() || mBitmapAssets.get(BitmapAssets.FRAME) == null) {
+                return;
+            }
             long now = System.currentTimeMillis();
+            long nextMinuteMillis = now - (now % FrameScheduler.MINUTE_MS) + FrameScheduler.MINUTE_MS;
+            /* Complication layers are rendered for the present, so text due to change rules it out. */
+            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+                ComplicationData complicationData = mComplicationDataSparseArray.get(COMPLICATION_IDS[i]);
+                if (complicationData != null
+                        && ComplicationTiming.hasTimeDependentChange(complicationData, now, nextMinuteMillis)) {
+                    return;
+                }
+            }
+            mPreparedAmbientCanvas.setBitmap(mBitmapAssets.create(BitmapAssets.PREPARED_AMBIENT_FRAME,
+                    mSurfaceWidth, mSurfaceHeight, Bitmap.Config.ARGB_8888));
+
+            mFrameClock.update(nextMinuteMillis, false);
+            drawDial(mPreparedAmbientCanvas);
+            drawBattery(mPreparedAmbientCanvas);
+            int complicationGenerations = sumComplicationGenerations();
+            drawComplications(mPreparedAmbientCanvas);
+            checkWearableBT(mPreparedAmbientCanvas);
+            drawWatchFace(mPreparedAmbientCanvas);
+            if (!checkAmbientPowerBudget(mBitmapAssets.get(BitmapAssets.PREPARED_AMBIENT_FRAME))) {
+                return;
+            }
 
-            drawBackground(canvas);
-            drawBattery(canvas, now);
-            drawComplications(canvas, now);
-            checkWearableBT(canvas);
-            drawWatchFace(canvas);
+            mPreparedAmbientMinute = nextMinuteMillis / FrameScheduler.MINUTE_MS;
+            mPreparedAmbientVersion = mAmbientContentVersion;
+            mPreparedComplicationGenerations = complicationGenerations;
         }
 
-        private void checkWearableBT(Canvas canvas) {
-            Paint paint = new Paint();
-            paint.setColor(Color.BLACK);
+        /*
+         * Measures a composed ambient frame. Over budget, the face goes down a level and is
+         * redrawn; returns false then, as the frame should not be shown.
+         */
+        private boolean checkAmbientPowerBudget(Bitmap frame) {
+            mAmbientPowerBudget.measure(frame);
+            if (!mAmbientPowerBudget.isOverBudget() || !mAmbientPowerBudget.degrade()) {
+                return true;
+            }
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, "Ambient frame lights " + mAmbientPowerBudget.getLastRatio()
+                        + " of the screen, going to level " + mAmbientPowerBudget.getLevel() + ".");
+            }
+            invalidateDialLayers();
+            invalidate();
+            return false;
+        }
+
+        /* Changes whenever any complication layer is republished, as generations only grow. */
+        private int sumComplicationGenerations() {
+            int sum = 0;
+            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+                sum += mComplicationRenderThread.getGeneration(i);
+            }
+            return sum;
+        }
+
+        private void releasePreparedAmbientFrame() {
+            mPreparedAmbientMinute = -1;
+            mBitmapAssets.recycle(BitmapAssets.PREPARED_AMBIENT_FRAME);
+        }
+
+        /*
+         * One line per stage with its p50/p95/p99 in microseconds, then the jank counters, then
+         * the engine's counters.
+         */
+        private void drawDebugOverlay(Canvas canvas) {
+            float lineHeight = mDebugOverlayPaint.getTextSize() * 1.2f;
+            float x = mCenterX - lineHeight * 6;
+            float y = mCenterY - lineHeight * (FrameStats.STAGE_COUNT + 1 + DEBUG_OVERLAY_COUNTER_LINES) / 2;
+            for (int stage = 0; stage < FrameStats.STAGE_COUNT; stage++) {
+                int length = mFrameStats.formatStage(mDebugOverlayText, stage);
+                canvas.drawText(mDebugOverlayText, 0, length, x, y, mDebugOverlayPaint);
+                y += lineHeight;
+            }
+            int length = mFrameStats.formatJank(mDebugOverlayText);
+            canvas.drawText(mDebugOverlayText, 0, length, x, y, mDebugOverlayPaint);
+            y += lineHeight;
+
+            /* Objects allocated by the last frame and the most by any frame; debug builds only. */
+            if (mAllocationTracker.isEnabled()) {
+                length = FrameStats.appendCount(mDebugOverlayText, 0, "alloc",
+                        mAllocationTracker.getLastFrameAllocations());
+                length = FrameStats.appendCount(mDebugOverlayText, length, " max",
+                        mAllocationTracker.getMaxFrameAllocations());
+                canvas.drawText(mDebugOverlayText, 0, length, x, y, mDebugOverlayPaint);
+            }
+            y += lineHeight;
+
+            /* Frames scheduled since the update mode was last changed. */
+            length = FrameStats.appendCount(mDebugOverlayText, 0, "wakeups", mFrameScheduler.getWakeupCount());
+            canvas.drawText(mDebugOverlayText, 0, length, x, y, mDebugOverlayPaint);
+            y += lineHeight;
+
+            /* Pixels redrawn by the last frame, and the average share of the surface in percent. */
+            length = FrameStats.appendCount(mDebugOverlayText, 0, "dirty", mDirtyRegion.getLastDirtyPixels());
+            length = FrameStats.appendCount(mDebugOverlayText, length, " avg%",
+                    Math.round(mDirtyRegion.getAverageDirtyFraction() * 100));
+            canvas.drawText(mDebugOverlayText, 0, length, x, y, mDebugOverlayPaint);
+            y += lineHeight;
+
+            /* Phone connection changes undone within their hysteresis. */
+            length = FrameStats.appendCount(mDebugOverlayText, 0, "flaps", mConnectivityState.getSuppressedFlaps());
+            canvas.drawText(mDebugOverlayText, 0, length, x, y, mDebugOverlayPaint);
+        }
+
+        /*
+         * Reports the current bounds and state of every moving element to mDirtyRegion and
+         * mScene, and returns the rectangle that has to be redrawn this frame.
+         */
+        private Rect updateDirtyRegion() {
+            mDirtyRegion.beginFrame();
+
+            int minute = mFrameClock.minute;
+            int hour = mFrameClock.hour12;
+            int secondAngle = mFrameClock.angles.second;
+            int minuteAngle = mFrameClock.angles.minute;
+            int hourAngle = mFrameClock.angles.hour;
+
+            float[] layout = mLayout.table;
+
+            /* The center circle is drawn with the second hand's paint, even in ambient mode. */
+            mElementBounds.setEmpty();
+            unionCircleBounds(mElementBounds, 0, layout[FaceLayout.CENTER_DOT_RADIUS], 0);
+            boolean secondHandShown = isSecondHandShown();
+            if (secondHandShown) {
+                unionHandBounds(mElementBounds, secondAngle, layout[FaceLayout.SECOND_HAND_TAIL],
+                        layout[FaceLayout.SECOND_HAND_LENGTH], layout[FaceLayout.SECOND_STROKE_WIDTH]);
+            }
+            updateNode(NODE_SECOND_HAND, mElementBounds, secondHandShown ? secondAngle : -1);
 
+            mElementBounds.setEmpty();
+            unionHandBounds(mElementBounds, hourAngle, layout[FaceLayout.HAND_INNER_RADIUS],
+                    layout[FaceLayout.HOUR_HAND_LENGTH], layout[FaceLayout.HOUR_STROKE_WIDTH]);
+            unionHandBounds(mElementBounds, minuteAngle, layout[FaceLayout.HAND_INNER_RADIUS],
+                    layout[FaceLayout.MINUTE_HAND_LENGTH], layout[FaceLayout.MINUTE_STROKE_WIDTH]);
+            unionCircleBounds(mElementBounds, layout[FaceLayout.HUB_RING_OFFSET], layout[FaceLayout.HUB_RING_RADIUS],
+                    layout[FaceLayout.HUB_RING_STROKE_WIDTH]);
+            long handsKey = ((long) hourAngle * SineTable.SIZE + minuteAngle) * 2 + (mDimHands ? 1 : 0);
+            updateNode(NODE_HANDS, mElementBounds, handsKey);
+
+            updateNode(NODE_TIME_TEXT, mTimeTextBounds, hour * 60 + minute);
+
+            updateNode(NODE_BATTERY, mBatteryBounds,
+                    mBatteryGauge.isKnown() ? mBatteryGauge.getEmptyHeight() * 4 + mBatteryGauge.getColorBucket() : -1);
+            updateNode(NODE_DISCONNECT, mDisconnectBounds, mWearableConnected ? 1 : 0);
+
+            /*
+             * A slot is redrawn when the render thread publishes a new layer for it, after new data
+             * or a wakeup from mComplicationRefresh.
+             */
+            for (int i = 0; i < COMPLICATION_IDS.length; i++) {
+                setComplicationLayerBounds(mElementBounds, i);
+                updateNode(NODE_COMPLICATION + i, mElementBounds, mComplicationRenderThread.getGeneration(i));
+            }
+            return mDirtyRegion.endFrame();
+        }
+
+        /* A node whose bounds or key changed is recorded again the next time it is drawn. */
+        private void updateNode(int node, Rect bounds, long key) {
+            if (mDirtyRegion.update(node, bounds, key)) {
+                mScene.invalidate(node);
+            }
+            mScene.setBounds(node, bounds.left, bounds.top, bounds.right, bounds.bottom);
+        }
+
+        /* Adds the bounds of a hand, including its stroke and shadow, to bounds. */
+        private void unionHandBounds(Rect bounds, int angle, float innerRadius, float outerRadius, float strokeWidth) {
+            float sin = SineTable.sin(angle);
+            float cos = SineTable.cos(angle);
+            float x0 = mCenterX + sin * innerRadius;
+            float y0 = mCenterY - cos * innerRadius;
+            float x1 = mCenterX + sin * outerRadius;
+            float y1 = mCenterY - cos * outerRadius;
+            float margin = strokeWidth / 2 + getShadowMargin() + 1;
+            bounds.union((int) (Math.min(x0, x1) - margin), (int) (Math.min(y0, y1) - margin),
+                    (int) (Math.max(x0, x1) + margin) + 1, (int) (Math.max(y0, y1) + margin) + 1);
+        }
+
+        /* How far a shadow layer's blur reaches past what casts it; the hand sprites are rendered with this room. */
+        private float getShadowMargin() {
+            return 2 * mLayout.table[FaceLayout.SHADOW_RADIUS] + 1;
+        }
+
+        /* Adds the bounds of a circle within offset pixels of the center, with shadow. */
+        private void unionCircleBounds(Rect bounds, float offset, float radius, float strokeWidth) {
+            float extent = offset + radius + strokeWidth / 2 + getShadowMargin() + 1;
+            bounds.union((int) (mCenterX - extent), (int) (mCenterY - extent),
+                    (int) (mCenterX + extent) + 1, (int) (mCenterY + extent) + 1);
+        }
+
+        private void checkWearableBT(Canvas canvas) {
             if (!mWearableConnected) {
                 if (!mAmbient) {
-                    canvas.drawRect(176, 60, 176+48, 68+48, paint);
-                    canvas.drawBitmap(mDisonnectBitmap, 182, 68, null);
+                    canvas.drawRect(mDisconnectBounds, mDisconnectPaint);
+                    Bitmap icon = mBitmapAssets.get(BitmapAssets.DISCONNECT);
+                    if (icon != null) {
+                        canvas.drawBitmap(icon, mDisconnectIconBounds.left, mDisconnectIconBounds.top, null);
+                    }
                 }
             }
         }
 
 
+        private int getDialMode() {
+            if (!mAmbient) {
+                return DIAL_MODE_INTERACTIVE;
+            }
+            return (mLowBitAmbient || mBurnInProtection) ? DIAL_MODE_LOW_BIT : DIAL_MODE_AMBIENT;
+        }
+
+        /*
+         * Marks every cached dial layer stale. Called whenever the surface size, the device
+         * properties or the styling baked into the layers change; layers are redrawn into their
+         * existing bitmaps on the next frame.
+         */
+        private void invalidateDialLayers() {
+            if (mDirtyRegion != null) {
+                mDirtyRegion.invalidateAll();
+            }
+            mScene.invalidateAll();
+            mAmbientContentVersion++;
+            for (int i = 0; i < DIAL_MODE_COUNT; i++) {
+                mDialLayerValid[i] = false;
+            }
+        }
+
+        private void drawDial(Canvas canvas) {
+            canvas.drawBitmap(mBitmapAssets.get(prepareDialLayer()), 0, 0, null);
+        }
+
+        /* Draws the current mode's dial layer if it is stale, and returns its slot. */
+        private int prepareDialLayer() {
+            int dialMode = getDialMode();
+            int slot = BitmapAssets.DIAL_LAYER + dialMode;
+            if (!mDialLayerValid[dialMode]) {
+                mDialLayerCanvas.setBitmap(mBitmapAssets.create(slot, mSurfaceWidth, mSurfaceHeight, Bitmap.Config.ARGB_8888));
+                drawBackground(mDialLayerCanvas);
+                if (!mAmbient || mAmbientPowerBudget.getLevel() < AmbientPowerBudget.LEVEL_HANDS_ONLY) {
+                    drawDialTicks(mDialLayerCanvas);
+                }
+                mDialLayerCanvas.setBitmap(null);
+                mDialLayerValid[dialMode] = true;
+            }
+            return slot;
+        }
+
         private void drawBackground(Canvas canvas) {
-            if (mAmbient && (mLowBitAmbient || mBurnInProtection)) {
+            if (mAmbient) {
                 canvas.drawColor(Color.BLACK);
-            } else if (mAmbient) {
-                canvas.drawBitmap(mGrayBackgroundBitmap, 0, 0, mBackgroundPaint);
+                /* Only one of the two exists, depending on low-bit ambient and burn-in protection. */
+                Bitmap ambientBackground = mBitmapAssets.get((mLowBitAmbient || mBurnInProtection)
+                        ? BitmapAssets.LOW_BIT_BACKGROUND : BitmapAssets.GRAY_BACKGROUND);
+                if (ambientBackground != null
+                        && mAmbientPowerBudget.getLevel() < AmbientPowerBudget.LEVEL_NO_BACKGROUND) {
+                    canvas.drawBitmap(ambientBackground, 0, 0, mGrayBackgroundPaint);
+                }
             } else {
-                canvas.drawBitmap(mBackgroundBitmap, 0, 0, mBackgroundPaint);
+                canvas.drawBitmap(mBitmapAssets.get(BitmapAssets.BACKGROUND), 0, 0, mBackgroundPaint);
             }
-//            canvas.drawBitmap(mStarBitmap,  124,72, null);
 
             if (!mAmbient) {
-                canvas.drawBitmap(mSaturnBitmap, 124, 74, null);
-                canvas.drawBitmap(mEarthBitmap, 240, 62, null);
-                canvas.drawBitmap(mMarvinBitmap, 72, 252, null);
-                canvas.drawBitmap(mCometBitmap, 272, 276, null);
+                drawSprite(canvas, BitmapAssets.SATURN, FaceLayout.SATURN);
+                drawSprite(canvas, BitmapAssets.EARTH, FaceLayout.EARTH);
+                drawSprite(canvas, BitmapAssets.MARVIN, FaceLayout.MARVIN);
+                drawSprite(canvas, BitmapAssets.COMET, FaceLayout.COMET);
             }
         }
 
-        private void drawBattery(Canvas canvas, long currentTimeMillis) {
-            Paint mBatteryPaint =  new Paint();
-            long now = System.currentTimeMillis();
-            mCalendar.setTimeInMillis(now);
-            int minute = mCalendar.get(Calendar.MINUTE);
-            long currentTime = System.currentTimeMillis();
-
-            if ((mBatteryLevel == -1) || ((minute % 15) == 0) || ((currentTime - mBatteryChecked) > 30 * 60 * 1000)) {
-                mBatteryChecked = currentTime;
-                IntentFilter ifilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
-                mBatteryStatus = getApplicationContext().registerReceiver(null, ifilter);
-                mBatteryLevel = mBatteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        private void drawSprite(Canvas canvas, int slot, int index) {
+            if (mBitmapAssets.get(slot) == null) {
+                /* Still on the loader thread. */
+                return;
             }
+            setSpriteBounds(mSpriteBounds, slot, index);
+            canvas.drawBitmap(mBitmapAssets.get(slot), mSpriteBounds.left, mSpriteBounds.top, null);
+        }
 
+        private void drawBattery(Canvas canvas) {
             //// Draw battery indicator
-            if (!isInAmbientMode()) {
-////                mBatteryLevel = 15;
-                int b_xoff, b_yoff;
-                b_xoff = 171; b_yoff = 2;
-                mBatteryPaint.setARGB(0xFF, 0x00, 0xFF, 0x00);
-                if (mBatteryLevel <= 75) { mBatteryPaint.setARGB(0xFF, 0xFF, 0xFF, 0x00); }
-                if (mBatteryLevel <= 50) { mBatteryPaint.setARGB(0xFF, 0xFF, 0xA5, 0x00); }
-                if (mBatteryLevel <= 25) { mBatteryPaint.setARGB(0xFF, 0xFF, 0x00, 0x00); }
-                canvas.drawRect(20 + b_xoff, 63 + b_yoff, 20 + b_xoff + 16, 63 + b_yoff + 10, mBatteryPaint);
-                canvas.drawRect(17 + b_xoff, 68 + b_yoff, 17 + b_xoff + 24, 68 + b_yoff + 40, mBatteryPaint);
-                mBatteryPaint.setARGB(0xFF, 0x00, 0x00, 0x00);
-                canvas.drawRect(19 + b_xoff, 72 + b_yoff, 19 + b_xoff + 20, 72 + b_yoff + 36 * (100 - mBatteryLevel) / 100, mBatteryPaint);
-            }
-
-        }
-
-        private void drawComplications(Canvas canvas, long currentTimeMillis) {
-            int complicationId;
-            ComplicationDrawable complicationDrawable;
-            Paint complicationPaint;
-
-            complicationPaint = new Paint();
-            complicationPaint.setColor(Color.WHITE);
-            complicationPaint.setStyle(Paint.Style.STROKE);
+            if (!isInAmbientMode() && mBatteryGauge.isKnown()) {
+                float[] layout = mLayout.table;
+                mBatteryPaint.setColor(mBatteryColors[mBatteryGauge.getColorBucket()]);
+                canvas.drawRect(layout[FaceLayout.BATTERY_CAP], layout[FaceLayout.BATTERY_CAP + 1],
+                        layout[FaceLayout.BATTERY_CAP + 2], layout[FaceLayout.BATTERY_CAP + 3], mBatteryPaint);
+                canvas.drawRect(layout[FaceLayout.BATTERY_BODY], layout[FaceLayout.BATTERY_BODY + 1],
+                        layout[FaceLayout.BATTERY_BODY + 2], layout[FaceLayout.BATTERY_BODY + 3], mBatteryPaint);
+                mBatteryPaint.setColor(Color.BLACK);
+                canvas.drawRect(layout[FaceLayout.BATTERY_EMPTY], layout[FaceLayout.BATTERY_EMPTY + 1],
+                        layout[FaceLayout.BATTERY_EMPTY + 2], layout[FaceLayout.BATTERY_EMPTY + 1] + mBatteryGauge.getEmptyHeight(), mBatteryPaint);
+            }
+
+        }
+
+        private void drawComplications(Canvas canvas) {
             for (int i = 0; i < COMPLICATION_IDS.length; i++) {
-                complicationId = COMPLICATION_IDS[i];
-                complicationDrawable = mComplicationDrawableSparseArray.get(complicationId);
-                complicationDrawable.draw(canvas, currentTimeMillis);
-                if (mAmbient) {
-                    canvas.drawCircle(complicationDrawable.getBounds().centerX(), complicationDrawable.getBounds().centerY(), complicationDrawable.getBounds().width() / 2, complicationPaint);
-                }
+                drawComplication(canvas, i);
             }
         }
 
-        private void drawWatchFace(Canvas canvas) {
+        /* Composites the latest layer rendered for the current mode; a slot stays empty until it has one. */
+        private void drawComplication(Canvas canvas, int slot) {
+            if (mAmbient && mAmbientPowerBudget.getLevel() >= AmbientPowerBudget.LEVEL_NO_COMPLICATIONS) {
+                return;
+            }
+            Bitmap layer = mComplicationRenderThread.acquire(slot,
+                    ComplicationRenderThread.modeTag(mAmbient, mLowBitAmbient, mBurnInProtection));
+            if (layer != null) {
+                setComplicationLayerBounds(mElementBounds, slot);
+                canvas.drawBitmap(layer, mElementBounds.left, mElementBounds.top, null);
+            }
+        }
+
+        /* Screen bounds of a complication slot's layer, including the outline margin. */
+        private void setComplicationLayerBounds(Rect bounds, int slot) {
+            setBounds(bounds, mLayout.table, FaceLayout.COMPLICATIONS + 4 * slot);
+            bounds.inset(-ComplicationRenderThread.MARGIN, -ComplicationRenderThread.MARGIN);
+        }
+
+        private void drawDialTicks(Canvas canvas) {
             /*
              * Draw ticks. Usually you will want to bake this directly into the photo, but in
              * cases where you want to allow users to select their own photos, this dynamically
              * creates them on top of the photo.
              */
 
-            float innerTickRadius;
-            float outerTickRadius = mCenterX;
-            mTickAndCirclePaint.setStrokeWidth(MINUTE_STROKE_WIDTH);
-            for (int tickIndex = 0; tickIndex < 12; tickIndex++) {
-                innerTickRadius = mCenterX - 32;
-                if ((tickIndex == 0) || (tickIndex == 3) || (tickIndex == 6) || (tickIndex == 9)) { innerTickRadius = mCenterX - 12; }
-                float tickRot = (float) (tickIndex * Math.PI * 2 / 12);
-                float innerX = (float) Math.sin(tickRot) * innerTickRadius;
-                float innerY = (float) -Math.cos(tickRot) * innerTickRadius;
-                float outerX = (float) Math.sin(tickRot) * outerTickRadius;
-                float outerY = (float) -Math.cos(tickRot) * outerTickRadius;
-                canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                        mCenterX + outerX, mCenterY + outerY, mTickAndCirclePaint);
-            }
-
-            innerTickRadius = mCenterX - 10;
-            mTickAndCirclePaint.setStrokeWidth(SECOND_TICK_STROKE_WIDTH);
-            for (int tickIndex = 0; tickIndex < 60; tickIndex++) {
-                float tickRot = (float) (tickIndex * Math.PI * 2 / 60);
-                float innerX = (float) Math.sin(tickRot) * innerTickRadius;
-                float innerY = (float) -Math.cos(tickRot) * innerTickRadius;
-                float outerX = (float) Math.sin(tickRot) * outerTickRadius;
-                float outerY = (float) -Math.cos(tickRot) * outerTickRadius;
-                canvas.drawLine(mCenterX + innerX, mCenterY + innerY,
-                        mCenterX + outerX, mCenterY + outerY, mTickAndCirclePaint);
-            }
-
-            /*
-             * These calculations reflect the rotation in degrees per unit of time, e.g.,
-             * 360 / 60 = 6 and 360 / 12 = 30.
-             */
-            final float seconds = (mCalendar.get(Calendar.SECOND) + mCalendar.get(Calendar.MILLISECOND) / 1000f);
-            final float secondsRotation = seconds * 6f;
-            final float minutesRotation = mCalendar.get(Calendar.MINUTE) * 6f;
-            final float hourHandOffset = mCalendar.get(Calendar.MINUTE) / 2f;
-            final float hoursRotation = (mCalendar.get(Calendar.HOUR) * 30) + hourHandOffset;
+            float[] layout = mLayout.table;
+            mTickAndCirclePaint.setStrokeWidth(layout[FaceLayout.MINUTE_STROKE_WIDTH]);
+            canvas.drawLines(mTickGeometry.hourTicks, mTickAndCirclePaint);
+            mTickAndCirclePaint.setStrokeWidth(layout[FaceLayout.SECOND_STROKE_WIDTH]);
+            canvas.drawLines(mTickGeometry.minuteTicks, mTickAndCirclePaint);
 
-            /*
-             * Save the canvas state before we can begin to rotate it.
-             */
-            canvas.save();
-            canvas.drawText("12", mCenterX-26,  mCenterY-148, mTickAndCirclePaint);
-            canvas.drawText("6",  mCenterX-14,  mCenterY+180, mTickAndCirclePaint);
-            canvas.drawText("3",  mCenterX+154, mCenterY+16,  mTickAndCirclePaint);
-            canvas.drawText("9",  mCenterX-176, mCenterY+16,  mTickAndCirclePaint);
+            canvas.drawText("12", layout[FaceLayout.NUMERAL_12], layout[FaceLayout.NUMERAL_12 + 1], mTickAndCirclePaint);
+            canvas.drawText("6",  layout[FaceLayout.NUMERAL_6],  layout[FaceLayout.NUMERAL_6 + 1],  mTickAndCirclePaint);
+            canvas.drawText("3",  layout[FaceLayout.NUMERAL_3],  layout[FaceLayout.NUMERAL_3 + 1],  mTickAndCirclePaint);
+            canvas.drawText("9",  layout[FaceLayout.NUMERAL_9],  layout[FaceLayout.NUMERAL_9 + 1],  mTickAndCirclePaint);
+        }
 
-            long now = System.currentTimeMillis();
-            mDate.setTime(now);
-            mCalendar.setTimeInMillis(now);
-            int hour = mCalendar.get(Calendar.HOUR);
-            int minute = mCalendar.get(Calendar.MINUTE);
-            Paint mTimePaint = new Paint();
-            mTimePaint.setTextSize(36);
-            mTimePaint.setARGB(0xFF, 0xFF, 0xFF, 0xFF);
+        /* The time text and the hands, drawn immediately; onDraw() has them drawn by their nodes. */
+        private void drawWatchFace(Canvas canvas) {
+            int length = formatTimeText(mTimeText);
+            int dialMode = getDialMode();
+            mTextCache.drawText(canvas, mTimeText, length, mTimePaint, dialMode, getTimeTextX(), getTimeTextY());
+            updateDayDateText();
+            drawDayDate(canvas, dialMode);
+            drawHands(canvas, dialMode, mFrameClock.angles.hour, mFrameClock.angles.minute, getHandAlpha());
+            drawSecondHand(canvas, dialMode, isSecondHandShown() ? mFrameClock.angles.second : -1,
+                    getSecondHandAlpha());
+        }
 
-            int time_xoff = 4;
-            int time_yoff = 0;
+        /* Returns the length of the hour and minute text written to text. */
+        private int formatTimeText(char[] text) {
+            int hour = mFrameClock.hour12;
             if (hour == 0) {hour = 12; }
-            if (hour > 9) { time_xoff = 19; }
-            String time_str = String.format("%d:%02d", hour, minute);
-            if (mAmbient) { time_yoff = 20; }
-            canvas.drawText(time_str, 175 - time_xoff, 154 - time_yoff, mTimePaint);
-////            canvas.drawText(mDayDateFormat.format(mDate), 128, 112, mDayDatePaint);
-
-            if (mDimHands) {
-                mHourPaint.setAlpha(0x60); mMinutePaint.setAlpha(0x60);
-            } else {
-                mHourPaint.setAlpha(0xFF); mMinutePaint.setAlpha(0xFF);
+            return TimeText.formatHourMinute(text, hour, mFrameClock.minute);
+        }
+
+        private float getTimeTextX() {
+            int hour = mFrameClock.hour12;
+            return mLayout.table[(hour > 9 || hour == 0) ? FaceLayout.TIME_X_LONG : FaceLayout.TIME_X_SHORT];
+        }
+
+        private float getTimeTextY() {
+            return mLayout.table[mAmbient ? FaceLayout.TIME_Y_AMBIENT : FaceLayout.TIME_Y];
+        }
+
+        /* Only reformatted on day rollover; the cache keeps the rasterised text. */
+        private void updateDayDateText() {
+            if (SHOW_DAY_DATE && mFrameClock.localDay != mDayDateKey) {
+                mDayDateKey = mFrameClock.localDay;
+                mDate.setTime(mFrameClock.epochMillis);
+                mCalendar.setTimeInMillis(mFrameClock.epochMillis);
+                mDayDateText = getDayDateFormat().format(mDate);
+            }
+        }
+
+        private void drawDayDate(Canvas canvas, int dialMode) {
+            if (SHOW_DAY_DATE) {
+                float[] layout = mLayout.table;
+                mTextCache.drawText(canvas, mDayDateText, mDayDatePaint, dialMode,
+                        layout[FaceLayout.DAY_DATE], layout[FaceLayout.DAY_DATE + 1]);
             }
-            canvas.rotate(hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(mCenterX,mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS-16, mCenterX,mCenterY - sHourHandLength, mHourPaint);
-            canvas.rotate(minutesRotation - hoursRotation, mCenterX, mCenterY);
-            canvas.drawLine(mCenterX,mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS-16, mCenterX,mCenterY - sMinuteHandLength, mMinutePaint);
+        }
 
-            mMinutePaint.setStrokeWidth(4);
-            mMinutePaint.setStyle(Paint.Style.STROKE);
-            canvas.drawCircle(mCenterX, mCenterY - 2, CENTER_GAP_AND_CIRCLE_RADIUS * 3, mMinutePaint);
-            mMinutePaint.setStrokeWidth(MINUTE_STROKE_WIDTH);
-            mMinutePaint.setStyle(Paint.Style.FILL);
+        /*
+         * Ensure the "seconds" hand is drawn only when we are in interactive mode.
+         * Otherwise, we only update the watch face once a minute.
+         */
+        private boolean isSecondHandShown() {
+            return !mAmbient && mFrameScheduler.showsSecondHand();
+        }
 
+        /* Dimming by tap applies to the hour and minute hands, mute mode to the second hand and dot. */
+        private int getHandAlpha() {
+            return mDimHands ? 0x60 : 0xFF;
+        }
 
-            /*
-             * Ensure the "seconds" hand is drawn only when we are in interactive mode.
-             * Otherwise, we only update the watch face once a minute.
-             */
-            if (!mAmbient) {
-                canvas.rotate(secondsRotation - minutesRotation, mCenterX, mCenterY);
-                canvas.drawLine(mCenterX,mCenterY - CENTER_GAP_AND_CIRCLE_RADIUS+24, mCenterX,mCenterY - mSecondHandLength, mSecondPaint);
+        private int getSecondHandAlpha() {
+            return mMuteMode ? 80 : 0xFF;
+        }
+
+        /* Hour and minute hands at SineTable angles, the hub ring turning with the minute hand. */
+        private void drawHands(Canvas canvas, int dialMode, int hourAngle, int minuteAngle, int alpha) {
+            if (!mHandSprites.isValid(dialMode)) {
+                renderHandSprites(dialMode);
+            }
+            boolean filter = dialMode == DIAL_MODE_INTERACTIVE;
+            mHandSprites.draw(canvas, dialMode, HandSprites.HOUR, hourAngle, mCenterX, mCenterY, alpha, filter);
+            mHandSprites.draw(canvas, dialMode, HandSprites.MINUTE, minuteAngle, mCenterX, mCenterY, alpha, filter);
+        }
+
+        /* The second hand, unless secondAngle is negative, and the center dot over it. */
+        private void drawSecondHand(Canvas canvas, int dialMode, int secondAngle, int alpha) {
+            if (!mHandSprites.isValid(dialMode)) {
+                renderHandSprites(dialMode);
+            }
+            boolean filter = dialMode == DIAL_MODE_INTERACTIVE;
+            if (secondAngle >= 0) {
+                mHandSprites.draw(canvas, dialMode, HandSprites.SECOND, secondAngle, mCenterX, mCenterY, alpha, filter);
             }
+            mHandSprites.draw(canvas, dialMode, HandSprites.CENTER_DOT, 0, mCenterX, mCenterY, alpha, filter);
+        }
+
+        /*
+         * Renders the hands for the current mode with the hand paints as updateWatchHandStyle()
+         * left them, shadow layers included, pointing at 12 o'clock. Each sprite's extent is its
+         * geometry plus getShadowMargin() for the blur.
+         */
+        private void renderHandSprites(int dialMode) {
+            float[] layout = mLayout.table;
+            float margin = getShadowMargin();
+
+            renderHandSprite(dialMode, HandSprites.HOUR, layout[FaceLayout.HAND_INNER_RADIUS],
+                    layout[FaceLayout.HOUR_HAND_LENGTH], mHourPaint, margin);
+
+            /* The hub ring sits slightly up the minute hand. */
+            float minuteHalfWidth = layout[FaceLayout.MINUTE_STROKE_WIDTH] / 2;
+            float hubRingOffset = layout[FaceLayout.HUB_RING_OFFSET];
+            float hubRingExtent = layout[FaceLayout.HUB_RING_RADIUS] + layout[FaceLayout.HUB_RING_STROKE_WIDTH] / 2;
+            Canvas canvas = mHandSprites.begin(dialMode, HandSprites.MINUTE,
+                    Math.max(layout[FaceLayout.MINUTE_HAND_LENGTH] + minuteHalfWidth, hubRingOffset + hubRingExtent) + margin,
+                    Math.max(minuteHalfWidth - layout[FaceLayout.HAND_INNER_RADIUS], hubRingExtent - hubRingOffset) + margin,
+                    Math.max(minuteHalfWidth, hubRingExtent) + margin);
+            canvas.drawLine(0, -layout[FaceLayout.HAND_INNER_RADIUS], 0, -layout[FaceLayout.MINUTE_HAND_LENGTH], mMinutePaint);
+            mMinutePaint.setStrokeWidth(layout[FaceLayout.HUB_RING_STROKE_WIDTH]);
+            mMinutePaint.setStyle(Paint.Style.STROKE);
+            canvas.drawCircle(0, -hubRingOffset, layout[FaceLayout.HUB_RING_RADIUS], mMinutePaint);
+            mMinutePaint.setStrokeWidth(layout[FaceLayout.MINUTE_STROKE_WIDTH]);
+            mMinutePaint.setStyle(Paint.Style.FILL);
+            mHandSprites.end(dialMode, HandSprites.MINUTE);
 
-            canvas.drawCircle(
-                    mCenterX,
-                    mCenterY,
-                    CENTER_GAP_AND_CIRCLE_RADIUS * 2,
-                    mSecondPaint);
+            renderHandSprite(dialMode, HandSprites.SECOND, layout[FaceLayout.SECOND_HAND_TAIL],
+                    layout[FaceLayout.SECOND_HAND_LENGTH], mSecondPaint, margin);
 
-            /* Restore the canvas' original orientation. */
-            canvas.restore();
+            float dotExtent = layout[FaceLayout.CENTER_DOT_RADIUS] + margin;
+            canvas = mHandSprites.begin(dialMode, HandSprites.CENTER_DOT, dotExtent, dotExtent, dotExtent);
+            canvas.drawCircle(0, 0, layout[FaceLayout.CENTER_DOT_RADIUS], mSecondPaint);
+            mHandSprites.end(dialMode, HandSprites.CENTER_DOT);
+        }
 
+        /* A negative inner radius extends the hand past the pivot as a counterweight. */
+        private void renderHandSprite(int dialMode, int sprite, float innerRadius, float outerRadius, Paint paint, float margin) {
+            float halfWidth = paint.getStrokeWidth() / 2;
+            Canvas canvas = mHandSprites.begin(dialMode, sprite,
+                    outerRadius + halfWidth + margin, halfWidth - innerRadius + margin, halfWidth + margin);
+            canvas.drawLine(0, -innerRadius, 0, -outerRadius, paint);
+            mHandSprites.end(dialMode, sprite);
         }
 
         @Override
         public void onVisibilityChanged(boolean visible) {
             super.onVisibilityChanged(visible);
+            mEventRecorder.record(EventTrace.TYPE_VISIBILITY, visible);
+            mComplicationRefresh.setEnabled(visible, System.currentTimeMillis());
 
             if (visible) {
                 registerReceiver();
                 /* Update time zone in case it changed while we weren't visible. */
                 mCalendar.setTimeZone(TimeZone.getDefault());
+                mFrameClock.setTimeZone(TimeZone.getDefault());
                 invalidate();
             } else {
                 unregisterReceiver();
+                mEventRecorder.flush();
             }
 
             /* Check and trigger whether or not timer should be running (only in active mode). */
@@ -824,20 +1690,27 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
         }
 
         private void registerReceiver() {
-            if (mRegisteredTimeZoneReceiver) {
+            if (mRegisteredReceivers) {
                 return;
             }
-            mRegisteredTimeZoneReceiver = true;
+            mRegisteredReceivers = true;
             IntentFilter filter = new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED);
             ComplicationWatchFaceService.this.registerReceiver(mTimeZoneReceiver, filter);
+            IntentFilter localeFilter = new IntentFilter(Intent.ACTION_LOCALE_CHANGED);
+            ComplicationWatchFaceService.this.registerReceiver(mLocaleReceiver, localeFilter);
+            /* The battery broadcast is sticky, so the current state is delivered right away. */
+            IntentFilter batteryFilter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+            ComplicationWatchFaceService.this.registerReceiver(mBatteryReceiver, batteryFilter);
         }
 
         private void unregisterReceiver() {
-            if (!mRegisteredTimeZoneReceiver) {
+            if (!mRegisteredReceivers) {
                 return;
             }
-            mRegisteredTimeZoneReceiver = false;
+            mRegisteredReceivers = false;
             ComplicationWatchFaceService.this.unregisterReceiver(mTimeZoneReceiver);
+            ComplicationWatchFaceService.this.unregisterReceiver(mLocaleReceiver);
+            ComplicationWatchFaceService.this.unregisterReceiver(mBatteryReceiver);
         }
 
         /**
@@ -859,14 +1732,13 @@ public class ComplicationWatchFaceService extends CanvasWatchFaceService {
         }
 
         /**
-         * Handle updating the time periodically in interactive mode.
+         * Handle updating the time in interactive mode. Rather than polling at a fixed rate, the
+         * handler sleeps until {@link FrameScheduler} says the face will next look different.
          */
         private void handleUpdateTimeMessage() {
             invalidate();
             if (shouldTimerBeRunning()) {
-                long timeMs = System.currentTimeMillis();
-                long delayMs = INTERACTIVE_UPDATE_RATE_MS
-                        - (timeMs % INTERACTIVE_UPDATE_RATE_MS);
+                long delayMs = mFrameScheduler.nextFrameDelay(System.currentTimeMillis());
                 mUpdateTimeHandler.sendEmptyMessageDelayed(MSG_UPDATE_TIME, delayMs);
             }
         }
@@ -0,0 +1,162 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+import android.os.Vibrator;
+import android.util.Log;
+
+import java.util.Calendar;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Whether the phone is connected, shared between {@link ComplicationListenerService}, which
+ * reports peer events from binder threads, and the watch face engine, which draws the
+ * disconnect badge. Both run in the same process.
+ * <p>
+ * Peer events are only posted from the reporting thread; everything else happens on the main
+ * thread. A new state is committed once it has held for its hysteresis, so a flapping link
+ * causes no transition at all. The hysteresis is timed by an elapsed-realtime alarm that wakes
+ * the watch, so a disconnect is committed on time even if the watch sleeps through it. Listeners
+ * hear about committed transitions only, and the disconnect vibration is rate limited on top of
+ * that.
+ */
+final class ConnectivityState implements Handler.Callback {
+    private static final String TAG = "ConnectivityState";
+
+    /** Called on the main thread when the committed state changes. */
+    interface Listener {
+        void onConnectivityChanged(boolean connected);
+    }
+
+    private static final int MSG_PEER_EVENT = 0;
+
+    private static final long[] VIBRATION_PATTERN = {0, 500, 250, 500};
+
+    private static ConnectivityState sInstance;
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final AlarmManager mAlarmManager;
+    private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<>();
+    private final long mConnectHysteresisMillis;
+    private final long mDisconnectHysteresisMillis;
+    private final long mVibrationIntervalMillis;
+
+    /* Assume connected until told otherwise, as the watch face always has. */
+    private volatile boolean mConnected = true;
+
+    /* Main thread state. */
+    private boolean mReportedConnected = true;
+    private long mLastVibrationMillis = -1;
+    private int mSuppressedFlaps;
+    private boolean mCommitPending;
+    private final AlarmManager.OnAlarmListener mCommitAlarm = new AlarmManager.OnAlarmListener() {
+        @Override
+        public void onAlarm() {
+            mCommitPending = false;
+            commit();
+        }
+    };
+
+    static synchronized ConnectivityState get(Context context) {
+        if (sInstance == null) {
+            sInstance = new ConnectivityState(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ConnectivityState(Context context) {
+        mContext = context;
+        mHandler = new Handler(Looper.getMainLooper(), this);
+        mAlarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        mConnectHysteresisMillis = context.getResources().getInteger(R.integer.peer_connect_hysteresis_ms);
+        mDisconnectHysteresisMillis = context.getResources().getInteger(R.integer.peer_disconnect_hysteresis_ms);
+        mVibrationIntervalMillis = context.getResources().getInteger(R.integer.disconnect_vibration_interval_ms);
+    }
+
+    /* Any thread: the last committed state. */
+    boolean isConnected() {
+        return mConnected;
+    }
+
+    /* Any thread. */
+    void reportPeer(boolean connected) {
+        mHandler.obtainMessage(MSG_PEER_EVENT, connected ? 1 : 0, 0).sendToTarget();
+    }
+
+    /* Main thread. */
+    void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    /* Main thread: changes undone within their hysteresis, never committed. */
+    int getSuppressedFlaps() {
+        return mSuppressedFlaps;
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_PEER_EVENT:
+                onPeerEvent(msg.arg1 != 0);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void onPeerEvent(boolean connected) {
+        if (connected == mReportedConnected) {
+            return;
+        }
+        mReportedConnected = connected;
+        if (mCommitPending) {
+            /* Back to the committed state before the change held long enough: a flap. */
+            mAlarmManager.cancel(mCommitAlarm);
+            mCommitPending = false;
+            mSuppressedFlaps++;
+        } else {
+            mCommitPending = true;
+            mAlarmManager.setExact(AlarmManager.ELAPSED_REALTIME_WAKEUP, SystemClock.elapsedRealtime()
+                    + (connected ? mConnectHysteresisMillis : mDisconnectHysteresisMillis),
+                    TAG, mCommitAlarm, mHandler);
+        }
+    }
+
+    private void commit() {
+        if (mReportedConnected == mConnected) {
+            return;
+        }
+        mConnected = mReportedConnected;
+        Log.d(TAG, mConnected ? "Connected." : "Disconnected.");
+        for (Listener listener : mListeners) {
+            listener.onConnectivityChanged(mConnected);
+        }
+        if (!mConnected) {
+            vibrate();
+        }
+    }
+
+    /* Only during the day, and at most once per mVibrationIntervalMillis. */
+    private void vibrate() {
+        int hour = Calendar.getInstance().get(Calendar.HOUR_OF_DAY);
+        if ((hour < 7) || (hour > 22)) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (mLastVibrationMillis >= 0 && now - mLastVibrationMillis < mVibrationIntervalMillis) {
+            return;
+        }
+        mLastVibrationMillis = now;
+        Vibrator vibrator = (Vibrator) mContext.getSystemService(Context.VIBRATOR_SERVICE);
+        vibrator.vibrate(VIBRATION_PATTERN, -1);
+    }
+}
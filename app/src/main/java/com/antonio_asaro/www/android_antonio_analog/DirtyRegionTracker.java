@@ -0,0 +1,88 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.graphics.Rect;
+
+/**
+ * Tracks the screen bounds of the elements that move or change between frames, and reduces
+ * them to a single dirty rectangle per frame: the union of the old and new bounds of every
+ * element whose bounds or content changed. Everything outside that rectangle is left as it was
+ * in the previous frame.
+ * <p>
+ * Each element reports its bounds and a content key once per frame through {@link #update}; a
+ * different key marks the element dirty even if its bounds did not move. The pixels redrawn per
+ * frame are counted for the debug overlay.
+ */
+final class DirtyRegionTracker {
+    private final Rect[] mBounds;
+    private final long[] mKeys;
+    private final Rect mDirty = new Rect();
+    private final int mSurfaceWidth;
+    private final int mSurfaceHeight;
+    private boolean mFullRedraw = true;
+
+    private int mLastDirtyPixels;
+    private long mTotalDirtyPixels;
+    private long mFrameCount;
+
+    DirtyRegionTracker(int elementCount, int surfaceWidth, int surfaceHeight) {
+        mBounds = new Rect[elementCount];
+        mKeys = new long[elementCount];
+        for (int i = 0; i < elementCount; i++) {
+            mBounds[i] = new Rect();
+        }
+        mSurfaceWidth = surfaceWidth;
+        mSurfaceHeight = surfaceHeight;
+    }
+
+    /* Forces the next frame to be redrawn in full, e.g. after a mode or style change. */
+    void invalidateAll() {
+        mFullRedraw = true;
+    }
+
+    void beginFrame() {
+        mDirty.setEmpty();
+    }
+
+    /*
+     * Reports an element's current bounds (empty if not drawn) and content key. Returns whether
+     * the element is dirty in this frame.
+     */
+    boolean update(int element, Rect bounds, long key) {
+        Rect previous = mBounds[element];
+        boolean dirty = mFullRedraw || mKeys[element] != key || !previous.equals(bounds);
+        if (dirty) {
+            mDirty.union(previous);
+            mDirty.union(bounds);
+        }
+        previous.set(bounds);
+        mKeys[element] = key;
+        return dirty;
+    }
+
+    /* Finishes the frame and returns the rectangle to redraw, which may be empty. */
+    Rect endFrame() {
+        if (mFullRedraw) {
+            mDirty.set(0, 0, mSurfaceWidth, mSurfaceHeight);
+            mFullRedraw = false;
+        } else if (!mDirty.intersect(0, 0, mSurfaceWidth, mSurfaceHeight)) {
+            mDirty.setEmpty();
+        }
+        mLastDirtyPixels = mDirty.width() * mDirty.height();
+        mTotalDirtyPixels += mLastDirtyPixels;
+        mFrameCount++;
+        return mDirty;
+    }
+
+    /* Pixels redrawn in the last frame. */
+    int getLastDirtyPixels() {
+        return mLastDirtyPixels;
+    }
+
+    /* Average fraction of the surface redrawn per frame, 1 meaning full redraws. */
+    float getAverageDirtyFraction() {
+        if (mFrameCount == 0) {
+            return 1f;
+        }
+        return mTotalDirtyPixels / (float) (mFrameCount * mSurfaceWidth * mSurfaceHeight);
+    }
+}
@@ -0,0 +1,82 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records the engine's events into an {@link EventTrace} file, so a session on the wrist can be
+ * replayed off-device with {@link TraceReplay}. Only active in debug builds, like
+ * {@link AllocationTracker}. Recording stops for good on the first write error or once the file
+ * reaches {@link #MAX_BYTES}; the trace so far stays readable.
+ * <p>
+ * Pull the trace with {@code adb exec-out run-as <package> cat files/engine_trace.bin}.
+ */
+final class EventRecorder {
+    private static final String TAG = "EventRecorder";
+
+    static final String FILE_NAME = "engine_trace.bin";
+    /* At a few bytes per event this is days of normal use. */
+    private static final long MAX_BYTES = 1024 * 1024;
+
+    private EventTraceWriter mWriter;
+
+    EventRecorder(File directory, boolean enabled) {
+        if (!enabled) {
+            return;
+        }
+        File file = new File(directory, FILE_NAME);
+        try {
+            mWriter = new EventTraceWriter(new FileOutputStream(file), System.currentTimeMillis());
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot record to " + file, e);
+        }
+    }
+
+    void record(int type, boolean flag) {
+        record(type, flag ? 1 : 0, 0, 0);
+    }
+
+    void record(int type, int a, int b, int c) {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.write(type, System.currentTimeMillis(), a, b, c);
+            if (mWriter.getBytesWritten() >= MAX_BYTES) {
+                Log.i(TAG, "Trace full, recording stopped.");
+                release();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Recording stopped", e);
+            release();
+        }
+    }
+
+    /* Flushes buffered records, e.g. when the face goes invisible and the process may be killed. */
+    void flush() {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.flush();
+        } catch (IOException e) {
+            Log.w(TAG, "Recording stopped", e);
+            release();
+        }
+    }
+
+    void release() {
+        if (mWriter == null) {
+            return;
+        }
+        try {
+            mWriter.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot close trace", e);
+        }
+        mWriter = null;
+    }
+}
@@ -0,0 +1,174 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.os.Trace;
+
+import java.util.Arrays;
+
+/**
+ * Times each stage of onDraw() with {@link System#nanoTime()} into fixed-bucket histograms and
+ * counts frames that run over budget. Every stage is also wrapped in an {@link Trace} section so
+ * it shows up in systrace. Recording is a handful of array writes with no locks and no
+ * allocation, so it stays compiled into release builds; all calls come from the drawing thread.
+ */
+final class FrameStats {
+    static final int STAGE_DIAL = 0;
+    static final int STAGE_BATTERY = 1;
+    static final int STAGE_COMPLICATIONS = 2;
+    static final int STAGE_DISCONNECT = 3;
+    static final int STAGE_WATCH_FACE = 4;
+    static final int STAGE_FRAME = 5;
+    static final int STAGE_COUNT = 6;
+
+    private static final String[] STAGE_NAMES = {
+            "dial", "battery", "complications", "disconnect", "watchFace", "frame"
+    };
+
+    /* One vsync at 60 Hz; a frame over this misses its slot. */
+    static final long JANK_BUDGET_NANOS = 16_666_667L;
+    /* One step of the smooth second hand; a frame over this drops a visible step. */
+    static final long SLOW_BUDGET_NANOS = 33_000_000L;
+
+    /*
+     * Upper bounds of the histogram buckets, growing by 25% from 20 us, so that 48 buckets reach
+     * past 800 ms while any reported percentile is within 25% of the real value.
+     */
+    private static final int BUCKET_COUNT = 48;
+    private static final long[] BUCKET_LIMITS_NANOS = new long[BUCKET_COUNT];
+
+    static {
+        double limit = 20_000;
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            BUCKET_LIMITS_NANOS[i] = (long) limit;
+            limit *= 1.25;
+        }
+        BUCKET_LIMITS_NANOS[BUCKET_COUNT - 1] = Long.MAX_VALUE;
+    }
+
+    private final int[][] mCounts = new int[STAGE_COUNT][BUCKET_COUNT];
+    private final int[] mTotals = new int[STAGE_COUNT];
+    private final long[] mStartNanos = new long[STAGE_COUNT];
+    private int mJankFrameCount;
+    private int mSlowFrameCount;
+
+    void begin(int stage) {
+        Trace.beginSection(STAGE_NAMES[stage]);
+        mStartNanos[stage] = System.nanoTime();
+    }
+
+    void end(int stage) {
+        long elapsed = System.nanoTime() - mStartNanos[stage];
+        Trace.endSection();
+        record(stage, elapsed);
+        if (stage == STAGE_FRAME) {
+            if (elapsed > JANK_BUDGET_NANOS) { mJankFrameCount++; }
+            if (elapsed > SLOW_BUDGET_NANOS) { mSlowFrameCount++; }
+        }
+    }
+
+    void record(int stage, long elapsedNanos) {
+        int bucket = Arrays.binarySearch(BUCKET_LIMITS_NANOS, elapsedNanos);
+        if (bucket < 0) {
+            bucket = -bucket - 1;
+        }
+        mCounts[stage][bucket]++;
+        mTotals[stage]++;
+    }
+
+    /* Returns the upper bound of the bucket holding the given percentile, or 0 before any sample. */
+    long getPercentileNanos(int stage, int percentile) {
+        int total = mTotals[stage];
+        if (total == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(total * percentile / 100.0);
+        int[] counts = mCounts[stage];
+        int seen = 0;
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return BUCKET_LIMITS_NANOS[i];
+            }
+        }
+        return BUCKET_LIMITS_NANOS[BUCKET_COUNT - 2];
+    }
+
+    int getSampleCount(int stage) {
+        return mTotals[stage];
+    }
+
+    int getJankFrameCount() {
+        return mJankFrameCount;
+    }
+
+    int getSlowFrameCount() {
+        return mSlowFrameCount;
+    }
+
+    static String getStageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    void reset() {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            Arrays.fill(mCounts[i], 0);
+            mTotals[i] = 0;
+        }
+        mJankFrameCount = 0;
+        mSlowFrameCount = 0;
+    }
+
+    /*
+     * Writes "<stage> <p50> <p95> <p99>" in microseconds into buffer without allocating, for the
+     * debug overlay. Returns the number of chars written.
+     */
+    int formatStage(char[] buffer, int stage) {
+        String name = STAGE_NAMES[stage];
+        int length = name.length();
+        name.getChars(0, length, buffer, 0);
+        length = appendMicros(buffer, length, getPercentileNanos(stage, 50));
+        length = appendMicros(buffer, length, getPercentileNanos(stage, 95));
+        return appendMicros(buffer, length, getPercentileNanos(stage, 99));
+    }
+
+    /* Writes "jank <n> slow <n>" into buffer. Returns the number of chars written. */
+    int formatJank(char[] buffer) {
+        int length = appendWord(buffer, 0, "jank");
+        length = appendNumber(buffer, length, mJankFrameCount);
+        length = appendWord(buffer, length, " slow");
+        return appendNumber(buffer, length, mSlowFrameCount);
+    }
+
+    /*
+     * Appends "<label> <value>" to buffer at offset, for the overlay's counter lines; a label
+     * after the first on a line starts with a space. Returns the new length.
+     */
+    static int appendCount(char[] buffer, int offset, String label, long value) {
+        return appendNumber(buffer, appendWord(buffer, offset, label), value);
+    }
+
+    private static int appendMicros(char[] buffer, int offset, long nanos) {
+        return appendNumber(buffer, offset, nanos / 1000);
+    }
+
+    private static int appendWord(char[] buffer, int offset, String word) {
+        word.getChars(0, word.length(), buffer, offset);
+        return offset + word.length();
+    }
+
+    private static int appendNumber(char[] buffer, int offset, long value) {
+        buffer[offset++] = ' ';
+        if (value == 0) {
+            buffer[offset++] = '0';
+            return offset;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
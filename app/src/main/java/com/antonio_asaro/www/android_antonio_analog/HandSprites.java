@@ -0,0 +1,114 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+
+/**
+ * Hands pre-rendered pointing at 12 o'clock, shadows included, and drawn rotated into place. A
+ * shadow layer blurs in software on every draw, so rendering each hand once per size and mode
+ * takes the blur out of the frame; what is left is one filtered bitmap blit per hand.
+ * <p>
+ * Sprites are rendered by the caller into the canvas {@link #begin} returns, whose origin is
+ * the pivot, and kept per mode until {@link #invalidate()}, e.g. when the surface size changes.
+ */
+final class HandSprites {
+    static final int HOUR = 0;
+    /* The minute hand with the hub ring that turns with it. */
+    static final int MINUTE = 1;
+    static final int SECOND = 2;
+    static final int CENTER_DOT = 3;
+    static final int SPRITE_COUNT = 4;
+
+    private final Bitmap[][] mBitmaps;
+    /* Pivot of each sprite within its bitmap, per mode. */
+    private final float[][] mPivotX;
+    private final float[][] mPivotY;
+    private final boolean[] mValid;
+    private final Canvas mRenderCanvas = new Canvas();
+    private final Matrix mMatrix = new Matrix();
+    private final Paint mPaint = new Paint();
+
+    HandSprites(int modeCount) {
+        mBitmaps = new Bitmap[modeCount][SPRITE_COUNT];
+        mPivotX = new float[modeCount][SPRITE_COUNT];
+        mPivotY = new float[modeCount][SPRITE_COUNT];
+        mValid = new boolean[modeCount];
+    }
+
+    boolean isValid(int mode) {
+        return mValid[mode];
+    }
+
+    /*
+     * Returns a cleared canvas for a sprite whose content, shadow included, reaches up, down and
+     * side pixels from the pivot, with the pivot at its origin. The bitmap is reused if it fits.
+     */
+    Canvas begin(int mode, int sprite, float up, float down, float side) {
+        int pivotX = (int) Math.ceil(side);
+        int pivotY = (int) Math.ceil(up);
+        int width = 2 * pivotX;
+        int height = pivotY + (int) Math.ceil(Math.max(down, 0f));
+        Bitmap bitmap = mBitmaps[mode][sprite];
+        if (bitmap != null && bitmap.getWidth() == width && bitmap.getHeight() == height) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        } else {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            bitmap = Bitmap.createBitmap(Math.max(width, 1), Math.max(height, 1), Bitmap.Config.ARGB_8888);
+            mBitmaps[mode][sprite] = bitmap;
+        }
+        mPivotX[mode][sprite] = pivotX;
+        mPivotY[mode][sprite] = pivotY;
+        /* Before API 26 setBitmap() keeps the matrix, so the pivot translation is undone in end(). */
+        mRenderCanvas.setBitmap(bitmap);
+        mRenderCanvas.save();
+        mRenderCanvas.translate(pivotX, pivotY);
+        return mRenderCanvas;
+    }
+
+    /* Ends the sprite started by begin(); the mode is valid once all its sprites are rendered. */
+    void end(int mode, int sprite) {
+        mRenderCanvas.restore();
+        mRenderCanvas.setBitmap(null);
+        if (sprite == SPRITE_COUNT - 1) {
+            mValid[mode] = true;
+        }
+    }
+
+    /*
+     * Draws a sprite with its pivot at (x, y), turned by a SineTable angle. Filtering keeps
+     * anti-aliased edges smooth when rotated; ambient sprites are drawn unfiltered, as their
+     * hands are drawn without anti-aliasing.
+     */
+    void draw(Canvas canvas, int mode, int sprite, int angle, float x, float y, int alpha, boolean filter) {
+        float pivotX = mPivotX[mode][sprite];
+        float pivotY = mPivotY[mode][sprite];
+        mMatrix.setRotate((float) angle / SineTable.STEPS_PER_DEGREE, pivotX, pivotY);
+        mMatrix.postTranslate(x - pivotX, y - pivotY);
+        mPaint.setAlpha(alpha);
+        mPaint.setFilterBitmap(filter);
+        canvas.drawBitmap(mBitmaps[mode][sprite], mMatrix, mPaint);
+    }
+
+    void invalidate() {
+        for (int i = 0; i < mValid.length; i++) {
+            mValid[i] = false;
+        }
+    }
+
+    void release() {
+        invalidate();
+        for (Bitmap[] sprites : mBitmaps) {
+            for (int i = 0; i < SPRITE_COUNT; i++) {
+                if (sprites[i] != null) {
+                    sprites[i].recycle();
+                    sprites[i] = null;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A bitmap layer written on a render thread and composited on the main thread without locks.
+ * Each side owns one buffer, the back buffer being drawn and the front buffer being shown, and
+ * a third sits in an {@link AtomicReference} as the latest completed one. Publishing and
+ * acquiring are a single atomic exchange each, so neither thread ever waits for the other and
+ * the main thread never sees a half-drawn layer.
+ * <p>
+ * Every buffer carries a tag, such as the ambient flags it was drawn with, and the generation of
+ * the layout it was drawn for, so the main thread can refuse a layer rendered for a mode it has
+ * already left or for bounds that have since changed.
+ */
+final class LayerBuffer {
+    private static final class Buffer {
+        Bitmap bitmap;
+        final Canvas canvas = new Canvas();
+        int generation;
+        int tag;
+        int layout;
+    }
+
+    /* Owned by the render thread. */
+    private Buffer mBack = new Buffer();
+    /* Owned by the main thread. */
+    private Buffer mFront = new Buffer();
+    private final AtomicReference<Buffer> mReady = new AtomicReference<>(new Buffer());
+    private final AtomicInteger mPublishedGeneration = new AtomicInteger();
+
+    /* Render thread: returns the cleared back buffer's canvas, sized width x height. */
+    Canvas beginWrite(int width, int height) {
+        Buffer back = mBack;
+        if (back.bitmap == null || back.bitmap.getWidth() != width || back.bitmap.getHeight() != height) {
+            if (back.bitmap != null) {
+                back.bitmap.recycle();
+            }
+            back.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            back.canvas.setBitmap(back.bitmap);
+        } else {
+            back.bitmap.eraseColor(Color.TRANSPARENT);
+        }
+        return back.canvas;
+    }
+
+    /* Render thread: hands the back buffer to the main thread and takes the stale ready one back. */
+    void publish(int tag, int layout) {
+        Buffer back = mBack;
+        back.tag = tag;
+        back.layout = layout;
+        back.generation = mPublishedGeneration.incrementAndGet();
+        mBack = mReady.getAndSet(back);
+    }
+
+    /* Any thread: increases with every publish, for dirty tracking. */
+    int getPublishedGeneration() {
+        return mPublishedGeneration.get();
+    }
+
+    /*
+     * Main thread: returns the newest completed layer if it carries the given tag and layout
+     * generation, or null. The bitmap stays valid until the next call.
+     */
+    Bitmap acquire(int tag, int layout) {
+        if (mReady.get().generation > mFront.generation) {
+            mFront = mReady.getAndSet(mFront);
+        }
+        Buffer front = mFront;
+        return (front.bitmap != null && front.tag == tag && front.layout == layout) ? front.bitmap : null;
+    }
+
+    /* Only once the render thread has stopped. */
+    void release() {
+        recycle(mBack);
+        recycle(mFront);
+        recycle(mReady.get());
+    }
+
+    private static void recycle(Buffer buffer) {
+        if (buffer.bitmap != null) {
+            buffer.bitmap.recycle();
+            buffer.bitmap = null;
+        }
+    }
+}
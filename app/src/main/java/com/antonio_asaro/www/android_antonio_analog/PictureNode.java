@@ -0,0 +1,34 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+
+/**
+ * A {@link SceneGraph} node whose content is a recorded {@link Picture}, for elements made of a
+ * few drawing calls that change rarely. Subclasses draw in surface coordinates, as they would
+ * onto the frame.
+ */
+abstract class PictureNode implements SceneGraph.Node<Canvas> {
+    private final Picture mPicture = new Picture();
+    private int mWidth = 1;
+    private int mHeight = 1;
+
+    /* The recording's cull size; takes effect at the next record(). */
+    void setSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+    }
+
+    @Override
+    public final void record() {
+        onRecord(mPicture.beginRecording(mWidth, mHeight));
+        mPicture.endRecording();
+    }
+
+    @Override
+    public final void draw(Canvas canvas) {
+        mPicture.draw(canvas);
+    }
+
+    protected abstract void onRecord(Canvas canvas);
+}
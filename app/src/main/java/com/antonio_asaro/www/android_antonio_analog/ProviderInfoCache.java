@@ -0,0 +1,292 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.Icon;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.wearable.complications.ComplicationProviderInfo;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Last-known provider of each complication slot, so {@link ComplicationConfigActivity} can paint
+ * its slots before the provider query returns. An entry is the provider's identity plus its icon,
+ * already decoded to a bitmap. Entries stay in memory for the life of the process, and are kept
+ * in preferences and the cache directory across processes.
+ * <p>
+ * The activity still queries the providers on every launch and passes the results, or the
+ * provider just chosen, to {@link #update}. Slots whose provider changed are decoded and
+ * repainted. For an unchanged provider the icon is rendered again and compared with the one
+ * shown, as an app update can change it under the same names, and the slot is only repainted if
+ * it differs. Icons are rendered on {@link #getExecutor()}, which the provider query shares. The
+ * icon files and their keys in preferences are only read and written on a single disk thread,
+ * in the order the updates were made, so a slot's stored key always names the provider whose
+ * icon is in its file. Everything else runs on the main thread only.
+ */
+final class ProviderInfoCache {
+    private static final String TAG = "ProviderInfoCache";
+
+    /** Called on the main thread with a slot's state; icon may be null even with a provider. */
+    interface Listener {
+        void onProviderIcon(int complicationId, boolean hasProvider, Bitmap icon);
+    }
+
+    private static final String PREFS_NAME = "provider_info_cache";
+    private static final String KEY_PROVIDER = "provider_";
+    /* Key of an empty slot. */
+    private static final String NO_PROVIDER = "";
+    private static final int FALLBACK_ICON_SIZE_DP = 48;
+
+    private static ProviderInfoCache sInstance;
+
+    private final Context mContext;
+    private final SharedPreferences mPreferences;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    /* Two threads, so icons are rendered while the provider query waits on its binder. */
+    private final ThreadPoolExecutor mExecutor;
+    /* One thread: cache file and key reads and writes never overlap. */
+    private final ThreadPoolExecutor mDiskExecutor;
+
+    /* Main thread state: the provider each slot shows, or is about to, and its icon once decoded. */
+    private final SparseArray<String> mKeys = new SparseArray<>();
+    private final SparseArray<Bitmap> mIcons = new SparseArray<>();
+    private Listener mListener;
+    /* Numbers update() calls, so the disk thread can tell which of a slot's saves is newest. */
+    private int mUpdateSequence;
+
+    /* Disk thread state: the sequence of the update each slot's file was last saved for. */
+    private final SparseIntArray mSavedSequences = new SparseIntArray();
+
+    static synchronized ProviderInfoCache get(Context context) {
+        if (sInstance == null) {
+            sInstance = new ProviderInfoCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private ProviderInfoCache(Context context) {
+        mContext = context;
+        mPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        mExecutor = new ThreadPoolExecutor(2, 2, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        mExecutor.allowCoreThreadTimeOut(true);
+        mDiskExecutor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        mDiskExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /* Bounded and shared across launches; its threads go away while unused. */
+    Executor getExecutor() {
+        return mExecutor;
+    }
+
+    void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    void removeListener(Listener listener) {
+        if (mListener == listener) {
+            mListener = null;
+        }
+    }
+
+    /* Paints the slot's last-known state: right away if in memory, else once read from disk. */
+    void load(final int complicationId) {
+        final String key = getKey(complicationId);
+        if (key == null) {
+            /* Never cached; the provider query fills it in. */
+            return;
+        }
+        mKeys.put(complicationId, key);
+        if (NO_PROVIDER.equals(key) || mIcons.get(complicationId) != null) {
+            notifyListener(complicationId, key, mIcons.get(complicationId));
+            return;
+        }
+        mDiskExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Bitmap icon = BitmapFactory.decodeFile(getIconFile(complicationId).getPath());
+                if (icon == null) {
+                    forget(complicationId, key);
+                } else {
+                    post(complicationId, key, icon);
+                }
+            }
+        });
+    }
+
+    /*
+     * Replaces the slot's entry unless it already shows this provider with the same icon, then
+     * repaints the slot. complicationProviderInfo is null for an empty slot.
+     */
+    void update(final int complicationId, ComplicationProviderInfo complicationProviderInfo) {
+        final String key = keyOf(complicationProviderInfo);
+        boolean sameProvider = key.equals(getKey(complicationId));
+        if (sameProvider && NO_PROVIDER.equals(key)) {
+            return;
+        }
+        /*
+         * Null unless the icon has been painted: while load() is still decoding, or after it
+         * failed to, the slot is repainted from this query rather than left to the load.
+         */
+        final Bitmap shownIcon = sameProvider ? mIcons.get(complicationId) : null;
+        if (!sameProvider) {
+            mIcons.remove(complicationId);
+        }
+        mKeys.put(complicationId, key);
+        final int sequence = ++mUpdateSequence;
+        final Icon providerIcon = (complicationProviderInfo == null) ? null : complicationProviderInfo.providerIcon;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap icon = (providerIcon == null) ? null : render(providerIcon);
+                if (shownIcon != null && icon != null && icon.sameAs(shownIcon)) {
+                    icon.recycle();
+                    return;
+                }
+                mDiskExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        save(complicationId, sequence, key, icon);
+                    }
+                });
+                post(complicationId, key, icon);
+            }
+        });
+    }
+
+    private String getKey(int complicationId) {
+        String key = mKeys.get(complicationId);
+        return (key != null) ? key : mPreferences.getString(KEY_PROVIDER + complicationId, null);
+    }
+
+    /* The provider's identity; its icon is compared separately by update(). */
+    private static String keyOf(ComplicationProviderInfo complicationProviderInfo) {
+        if (complicationProviderInfo == null) {
+            return NO_PROVIDER;
+        }
+        return complicationProviderInfo.appName + '\n' + complicationProviderInfo.providerName
+                + '\n' + complicationProviderInfo.complicationType;
+    }
+
+    private File getIconFile(int complicationId) {
+        return new File(mContext.getCacheDir(), "provider_icon_" + complicationId + ".png");
+    }
+
+    /* Executor: draws the icon at its own size, as the ImageButton would. */
+    private Bitmap render(Icon providerIcon) {
+        Drawable drawable = providerIcon.loadDrawable(mContext);
+        if (drawable == null) {
+            return null;
+        }
+        int fallbackSize = Math.round(FALLBACK_ICON_SIZE_DP * mContext.getResources().getDisplayMetrics().density);
+        int width = (drawable.getIntrinsicWidth() > 0) ? drawable.getIntrinsicWidth() : fallbackSize;
+        int height = (drawable.getIntrinsicHeight() > 0) ? drawable.getIntrinsicHeight() : fallbackSize;
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    /*
+     * Disk thread: the key is only stored once its icon is, so a stored key always has its icon.
+     * Renders finish in any order on the two-thread executor; a save older than the slot's last
+     * one is dropped. The icon is written to a temporary file and renamed over the old one, so a
+     * process killed mid-write never leaves a truncated icon for the next launch.
+     */
+    private void save(int complicationId, int sequence, String key, Bitmap icon) {
+        if (sequence < mSavedSequences.get(complicationId, 0)) {
+            return;
+        }
+        mSavedSequences.put(complicationId, sequence);
+        File file = getIconFile(complicationId);
+        if (icon == null) {
+            file.delete();
+            if (!NO_PROVIDER.equals(key)) {
+                /* Nothing to paint it with later; leave it to the next query. */
+                mPreferences.edit().remove(KEY_PROVIDER + complicationId).apply();
+                return;
+            }
+        } else {
+            /* Unset while the file holds neither provider's icon for sure. */
+            mPreferences.edit().remove(KEY_PROVIDER + complicationId).apply();
+            File temp = new File(file.getPath() + ".tmp");
+            FileOutputStream out = null;
+            try {
+                out = new FileOutputStream(temp);
+                icon.compress(Bitmap.CompressFormat.PNG, 100, out);
+                out.close();
+                out = null;
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot cache " + file, e);
+                temp.delete();
+                return;
+            } finally {
+                if (out != null) {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        Log.w(TAG, "Cannot close " + temp, e);
+                    }
+                }
+            }
+            if (!temp.renameTo(file)) {
+                Log.w(TAG, "Cannot replace " + file);
+                temp.delete();
+                return;
+            }
+        }
+        mPreferences.edit().putString(KEY_PROVIDER + complicationId, key).apply();
+    }
+
+    /* Disk thread: an icon file that can't be read; the next query repaints the slot. */
+    private void forget(final int complicationId, final String key) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                /* As in post(): an update() since then is repainting the slot itself. */
+                if (mKeys.get(complicationId) == key) {
+                    mKeys.remove(complicationId);
+                    mPreferences.edit().remove(KEY_PROVIDER + complicationId).apply();
+                }
+            }
+        });
+    }
+
+    private void post(final int complicationId, final String key, final Bitmap icon) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                /*
+                 * Dropped if a later load() or update() has stored its own key meanwhile, even
+                 * an equal one: only the newest request paints the slot.
+                 */
+                if (mKeys.get(complicationId) != key) {
+                    return;
+                }
+                if (icon != null) {
+                    mIcons.put(complicationId, icon);
+                }
+                notifyListener(complicationId, key, icon);
+            }
+        });
+    }
+
+    private void notifyListener(int complicationId, String key, Bitmap icon) {
+        if (mListener != null) {
+            mListener.onProviderIcon(complicationId, !NO_PROVIDER.equals(key), icon);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * Small least-recently-used cache of pre-rasterised text, keyed by the text, the {@link Paint}
+ * it is drawn with and the drawing mode. A hit costs one bitmap blit instead of a trip through
+ * the text shaper; a miss renders into the bitmap of the evicted entry, which is only
+ * reallocated when the new text does not fit. Callers must {@link #clear()} the cache when they
+ * change a paint used as a key, or when the locale changes.
+ */
+final class TextCache {
+    /* Transparent margin around the glyphs so anti-aliased edges are not clipped. */
+    private static final int PADDING = 2;
+
+    private static final class Entry {
+        char[] text = new char[16];
+        int length;
+        Paint paint;
+        int mode;
+        Bitmap bitmap;
+        /* Offset from the text origin (start of the baseline) to the bitmap's top left. */
+        int offsetX;
+        int offsetY;
+        long lastUsed;
+    }
+
+    private final Entry[] mEntries;
+    private final Canvas mRenderCanvas = new Canvas();
+    private final Rect mTextBounds = new Rect();
+    private long mUseCounter;
+
+    TextCache(int capacity) {
+        mEntries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            mEntries[i] = new Entry();
+        }
+    }
+
+    /* Draws text with its baseline starting at (x, y), as Canvas.drawText() would. */
+    void drawText(Canvas canvas, char[] text, int length, Paint paint, int mode, float x, float y) {
+        Entry entry = find(text, null, length, paint, mode);
+        if (entry == null) {
+            entry = evict();
+            store(entry, text, null, length, paint, mode);
+        }
+        draw(canvas, entry, x, y);
+    }
+
+    void drawText(Canvas canvas, String text, Paint paint, int mode, float x, float y) {
+        int length = text.length();
+        Entry entry = find(null, text, length, paint, mode);
+        if (entry == null) {
+            entry = evict();
+            store(entry, null, text, length, paint, mode);
+        }
+        draw(canvas, entry, x, y);
+    }
+
+    void clear() {
+        for (Entry entry : mEntries) {
+            entry.paint = null;
+            entry.length = 0;
+        }
+    }
+
+    void release() {
+        clear();
+        for (Entry entry : mEntries) {
+            if (entry.bitmap != null) {
+                entry.bitmap.recycle();
+                entry.bitmap = null;
+            }
+        }
+    }
+
+    private Entry find(char[] chars, String string, int length, Paint paint, int mode) {
+        for (Entry entry : mEntries) {
+            if (entry.paint != paint || entry.mode != mode || entry.length != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && entry.text[i] == ((chars != null) ? chars[i] : string.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private Entry evict() {
+        Entry oldest = mEntries[0];
+        for (Entry entry : mEntries) {
+            if (entry.paint == null) {
+                return entry;
+            }
+            if (entry.lastUsed < oldest.lastUsed) {
+                oldest = entry;
+            }
+        }
+        return oldest;
+    }
+
+    private void store(Entry entry, char[] chars, String string, int length, Paint paint, int mode) {
+        if (entry.text.length < length) {
+            entry.text = new char[length];
+        }
+        if (chars != null) {
+            System.arraycopy(chars, 0, entry.text, 0, length);
+        } else {
+            string.getChars(0, length, entry.text, 0);
+        }
+        entry.length = length;
+        entry.paint = paint;
+        entry.mode = mode;
+
+        paint.getTextBounds(entry.text, 0, length, mTextBounds);
+        int width = mTextBounds.width() + 2 * PADDING;
+        int height = mTextBounds.height() + 2 * PADDING;
+        if (entry.bitmap == null || entry.bitmap.getWidth() < width || entry.bitmap.getHeight() < height) {
+            if (entry.bitmap != null) {
+                entry.bitmap.recycle();
+            }
+            entry.bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } else {
+            entry.bitmap.eraseColor(Color.TRANSPARENT);
+        }
+        entry.offsetX = mTextBounds.left - PADDING;
+        entry.offsetY = mTextBounds.top - PADDING;
+
+        mRenderCanvas.setBitmap(entry.bitmap);
+        mRenderCanvas.drawText(entry.text, 0, length, -entry.offsetX, -entry.offsetY, paint);
+        mRenderCanvas.setBitmap(null);
+    }
+
+    private void draw(Canvas canvas, Entry entry, float x, float y) {
+        entry.lastUsed = ++mUseCounter;
+        canvas.drawBitmap(entry.bitmap, x + entry.offsetX, y + entry.offsetY, null);
+    }
+}
@@ -0,0 +1,42 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Settings shared between {@link ComplicationConfigActivity}, which edits them, and
+ * {@link ComplicationWatchFaceService}, which listens for changes. Both run in the same process.
+ */
+final class WatchFacePreferences {
+    static final String PREFS_NAME = "watch_face_settings";
+    static final String KEY_UPDATE_MODE = "update_mode";
+    static final String KEY_DEBUG_OVERLAY = "debug_overlay";
+
+    private WatchFacePreferences() {
+    }
+
+    static SharedPreferences get(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    static FrameScheduler.Mode getUpdateMode(SharedPreferences preferences) {
+        String name = preferences.getString(KEY_UPDATE_MODE, FrameScheduler.Mode.SMOOTH.name());
+        try {
+            return FrameScheduler.Mode.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return FrameScheduler.Mode.SMOOTH;
+        }
+    }
+
+    static void setUpdateMode(SharedPreferences preferences, FrameScheduler.Mode mode) {
+        preferences.edit().putString(KEY_UPDATE_MODE, mode.name()).apply();
+    }
+
+    static boolean getDebugOverlay(SharedPreferences preferences) {
+        return preferences.getBoolean(KEY_DEBUG_OVERLAY, false);
+    }
+
+    static void setDebugOverlay(SharedPreferences preferences, boolean enabled) {
+        preferences.edit().putBoolean(KEY_DEBUG_OVERLAY, enabled).apply();
+    }
+}
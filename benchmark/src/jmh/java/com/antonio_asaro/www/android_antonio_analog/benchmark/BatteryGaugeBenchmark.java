@@ -0,0 +1,25 @@
+package com.antonio_asaro.www.android_antonio_analog.benchmark;
+
+import com.antonio_asaro.www.android_antonio_analog.BatteryGauge;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/* A battery broadcast draining the level one percent at a time. */
+@State(Scope.Thread)
+public class BatteryGaugeBenchmark {
+    private final BatteryGauge mGauge = new BatteryGauge(36);
+    private int mReading;
+
+    @Benchmark
+    public boolean update() {
+        int reading = mReading++;
+        return mGauge.update(100 - reading % 101, false, reading);
+    }
+
+    @Benchmark
+    public int colorBucket() {
+        return BatteryGauge.colorBucket(mReading++ % 101);
+    }
+}
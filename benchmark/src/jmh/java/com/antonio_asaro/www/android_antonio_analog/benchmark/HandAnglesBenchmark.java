@@ -0,0 +1,21 @@
+package com.antonio_asaro.www.android_antonio_analog.benchmark;
+
+import com.antonio_asaro.www.android_antonio_analog.HandAngles;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/* Per-frame hand angle lookup, stepping through a sweeping second hand's frames. */
+@State(Scope.Thread)
+public class HandAnglesBenchmark {
+    private final HandAngles mAngles = new HandAngles();
+    private int mFrame;
+
+    @Benchmark
+    public int update() {
+        int frame = mFrame++;
+        mAngles.update(frame / 108000 % 12, frame / 1800 % 60, (frame % 1800) / 30f);
+        return mAngles.hour + mAngles.minute + mAngles.second;
+    }
+}
@@ -0,0 +1,39 @@
+package com.antonio_asaro.www.android_antonio_analog.benchmark;
+
+import com.antonio_asaro.www.android_antonio_analog.FaceLayout;
+import com.antonio_asaro.www.android_antonio_analog.TickGeometry;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/*
+ * Layout and tick tables for a new surface size. The center alternates so every call rebuilds
+ * the tables instead of hitting the unchanged-geometry early return.
+ */
+@State(Scope.Thread)
+public class TickGeometryBenchmark {
+    private final FaceLayout mLayout = new FaceLayout();
+    private final TickGeometry mTickGeometry = new TickGeometry();
+    private int mCall;
+
+    @Setup
+    public void setUp() {
+        mLayout.compute(400, 400);
+    }
+
+    @Benchmark
+    public float[] update() {
+        float center = 200 + (mCall++ & 1);
+        mTickGeometry.update(center, center, mLayout.table);
+        return mTickGeometry.minuteTicks;
+    }
+
+    @Benchmark
+    public float[] computeLayout() {
+        int size = ((mCall++ & 1) == 0) ? 390 : 454;
+        mLayout.compute(size, size);
+        return mLayout.table;
+    }
+}
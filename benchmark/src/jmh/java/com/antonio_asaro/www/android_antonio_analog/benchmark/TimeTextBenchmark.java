@@ -0,0 +1,26 @@
+package com.antonio_asaro.www.android_antonio_analog.benchmark;
+
+import com.antonio_asaro.www.android_antonio_analog.TimeText;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/* The digital "h:mm" text, against the String.format() call it replaced. */
+@State(Scope.Thread)
+public class TimeTextBenchmark {
+    private final char[] mBuffer = new char[TimeText.MAX_LENGTH];
+    private int mMinute;
+
+    @Benchmark
+    public int formatHourMinute() {
+        int minute = mMinute++ % 720;
+        return TimeText.formatHourMinute(mBuffer, minute / 60 + 1, minute % 60);
+    }
+
+    @Benchmark
+    public String stringFormat() {
+        int minute = mMinute++ % 720;
+        return String.format("%d:%02d", minute / 60 + 1, minute % 60);
+    }
+}
@@ -0,0 +1,143 @@
+package com.antonio_asaro.www.android_antonio_analog.benchmark;
+
+import com.antonio_asaro.www.android_antonio_analog.EventTrace;
+import com.antonio_asaro.www.android_antonio_analog.EventTraceReader;
+import com.antonio_asaro.www.android_antonio_analog.FaceLayout;
+import com.antonio_asaro.www.android_antonio_analog.FrameClock;
+import com.antonio_asaro.www.android_antonio_analog.FrameScheduler;
+import com.antonio_asaro.www.android_antonio_analog.TickGeometry;
+import com.antonio_asaro.www.android_antonio_analog.TimeText;
+import com.antonio_asaro.www.android_antonio_analog.TraceReplay;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.TimeZone;
+
+/**
+ * Replays an engine event trace recorded on the watch through the :core frame math on the
+ * desktop JVM, and reports the frames the engine would have drawn, how many of them redrew each
+ * stage, and the time spent in the :core math for those frames. Nothing is drawn: the Android
+ * canvas work is not reproduced, so the "core time" is not a frame cost. What the replay is good
+ * for is the frame and stage counts, which follow from the scheduler and the invalidation
+ * rules; TraceReplayTest in :core holds them for a fixed trace.
+ * <p>
+ * Usage: {@code ./gradlew :benchmark:replayTrace -Ptrace=engine_trace.bin [-Pmode=TICK]}
+ */
+public final class TraceReplayHarness implements TraceReplay.Sink {
+    private static final int STAGE_DIAL = 0;
+    private static final int STAGE_COMPLICATIONS = 1;
+    private static final int STAGE_DISCONNECT = 2;
+    private static final int STAGE_WATCH_FACE = 3;
+    private static final String[] STAGE_NAMES = {"dial", "complications", "disconnect", "watchFace"};
+
+    private final FaceLayout mLayout = new FaceLayout();
+    private final TickGeometry mTickGeometry = new TickGeometry();
+    private final FrameClock mFrameClock = new FrameClock(TimeZone.getDefault());
+    private final char[] mTimeText = new char[TimeText.MAX_LENGTH];
+    private final boolean[] mDirty = new boolean[STAGE_NAMES.length];
+    private final int[] mStageFrames = new int[STAGE_NAMES.length];
+    private final long[] mStageNanos = new long[STAGE_NAMES.length];
+    private final boolean mSweeping;
+    private long mCoreNanos;
+    private int mFrames;
+    private int mEvents;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: TraceReplayHarness <trace file> [SMOOTH|TICK|ECO]");
+            System.exit(2);
+        }
+        FrameScheduler scheduler = new FrameScheduler();
+        if (args.length > 1) {
+            scheduler.setMode(FrameScheduler.Mode.valueOf(args[1]));
+        }
+
+        TraceReplayHarness harness = new TraceReplayHarness(scheduler.isSweeping());
+        EventTraceReader reader = new EventTraceReader(new FileInputStream(args[0]));
+        try {
+            TraceReplay.replay(reader, scheduler, harness);
+        } finally {
+            reader.close();
+        }
+        harness.report(System.out, scheduler);
+    }
+
+    private TraceReplayHarness(boolean sweeping) {
+        mSweeping = sweeping;
+        mDirty[STAGE_DIAL] = true;
+        mDirty[STAGE_COMPLICATIONS] = true;
+        mDirty[STAGE_DISCONNECT] = true;
+    }
+
+    @Override
+    public void onEvent(EventTrace.Event event) {
+        mEvents++;
+        switch (event.type) {
+            case EventTrace.TYPE_VISIBILITY:
+            case EventTrace.TYPE_AMBIENT:
+                /* Both recompose the whole frame in the engine. */
+                mDirty[STAGE_DIAL] = true;
+                mDirty[STAGE_COMPLICATIONS] = true;
+                mDirty[STAGE_DISCONNECT] = true;
+                break;
+            case EventTrace.TYPE_TAP:
+            case EventTrace.TYPE_COMPLICATION_DATA:
+                mDirty[STAGE_COMPLICATIONS] = true;
+                break;
+            case EventTrace.TYPE_PEER:
+                mDirty[STAGE_DISCONNECT] = true;
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onFrame(long timeMillis, boolean ambient) {
+        long frameStart = System.nanoTime();
+        mFrames++;
+        mDirty[STAGE_WATCH_FACE] = true;
+        for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+            if (!mDirty[stage]) {
+                continue;
+            }
+            mDirty[stage] = false;
+            long start = System.nanoTime();
+            runStage(stage, timeMillis, ambient);
+            mStageNanos[stage] += System.nanoTime() - start;
+            mStageFrames[stage]++;
+        }
+        mCoreNanos += System.nanoTime() - frameStart;
+    }
+
+    private void runStage(int stage, long timeMillis, boolean ambient) {
+        switch (stage) {
+            case STAGE_DIAL:
+                /* As on the watch, the tick tables are only rebuilt if the layout moved. */
+                mLayout.compute(400, 400);
+                float[] layout = mLayout.table;
+                mTickGeometry.update(layout[FaceLayout.CENTER_X], layout[FaceLayout.CENTER_Y], layout);
+                break;
+            case STAGE_WATCH_FACE:
+                mFrameClock.update(timeMillis, !ambient && mSweeping);
+                int hour = mFrameClock.hour12;
+                TimeText.formatHourMinute(mTimeText, (hour == 0) ? 12 : hour, mFrameClock.minute);
+                break;
+            default:
+                /* Complication and badge drawing are canvas work; only the frame count is kept. */
+                break;
+        }
+    }
+
+    private void report(PrintStream out, FrameScheduler scheduler) {
+        out.println("mode " + scheduler.getMode() + ", " + mEvents + " events, " + mFrames + " frames rendered, "
+                + scheduler.getWakeupCount() + " scheduled wakeups");
+        out.println("core time " + mCoreNanos / 1000 + " us, "
+                + ((mFrames == 0) ? 0 : mCoreNanos / mFrames) + " ns/frame (frame math only, nothing drawn)");
+        for (int stage = 0; stage < STAGE_NAMES.length; stage++) {
+            out.println(String.format("%-14s %8d frames %10d us core", STAGE_NAMES[stage],
+                    mStageFrames[stage], mStageNanos[stage] / 1000));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Cached snapshot of the battery state as drawn by the battery gauge. Battery broadcasts feed
+ * {@link #update}, which only reports a change when something the gauge draws is different: the
+ * colour bucket (75/50/25% thresholds) or the height of the empty part of the gauge.
+ */
+public final class BatteryGauge {
+    public static final int LEVEL_UNKNOWN = -1;
+
+    /* Colour buckets, from full to almost empty. */
+    public static final int BUCKET_FULL = 0;
+    public static final int BUCKET_HIGH = 1;
+    public static final int BUCKET_MEDIUM = 2;
+    public static final int BUCKET_LOW = 3;
+
+    private int mGaugeHeight;
+
+    private int mLevel = LEVEL_UNKNOWN;
+    private boolean mCharging;
+    private long mTimestampMillis;
+    private int mColorBucket = BUCKET_FULL;
+    private int mEmptyHeight;
+
+    /* gaugeHeight is the height in pixels of the gauge body that drains as the level drops. */
+    public BatteryGauge(int gaugeHeight) {
+        mGaugeHeight = gaugeHeight;
+    }
+
+    /* Changes the gauge height, e.g. for a new surface size. Returns true if the gauge changes. */
+    public boolean setGaugeHeight(int gaugeHeight) {
+        mGaugeHeight = gaugeHeight;
+        if (!isKnown()) {
+            return false;
+        }
+        int emptyHeight = emptyHeight(mLevel, gaugeHeight);
+        boolean changed = emptyHeight != mEmptyHeight;
+        mEmptyHeight = emptyHeight;
+        return changed;
+    }
+
+    /**
+     * Stores a new battery reading, with {@code level} in percent. Returns true if the drawn
+     * gauge changes as a result.
+     */
+    public boolean update(int level, boolean charging, long timestampMillis) {
+        boolean wasKnown = isKnown();
+        mLevel = level;
+        mCharging = charging;
+        mTimestampMillis = timestampMillis;
+        if (!isKnown()) {
+            return wasKnown;
+        }
+
+        int colorBucket = colorBucket(level);
+        int emptyHeight = emptyHeight(level, mGaugeHeight);
+        boolean changed = !wasKnown || colorBucket != mColorBucket || emptyHeight != mEmptyHeight;
+        mColorBucket = colorBucket;
+        mEmptyHeight = emptyHeight;
+        return changed;
+    }
+
+    public boolean isKnown() {
+        return mLevel != LEVEL_UNKNOWN;
+    }
+
+    public int getLevel() {
+        return mLevel;
+    }
+
+    public boolean isCharging() {
+        return mCharging;
+    }
+
+    public long getTimestampMillis() {
+        return mTimestampMillis;
+    }
+
+    public int getColorBucket() {
+        return mColorBucket;
+    }
+
+    /* Height in pixels of the drained, unfilled part at the top of the gauge body. */
+    public int getEmptyHeight() {
+        return mEmptyHeight;
+    }
+
+    public static int colorBucket(int level) {
+        if (level <= 25) {
+            return BUCKET_LOW;
+        }
+        if (level <= 50) {
+            return BUCKET_MEDIUM;
+        }
+        if (level <= 75) {
+            return BUCKET_HIGH;
+        }
+        return BUCKET_FULL;
+    }
+
+    public static int emptyHeight(int level, int gaugeHeight) {
+        return gaugeHeight * (100 - level) / 100;
+    }
+}
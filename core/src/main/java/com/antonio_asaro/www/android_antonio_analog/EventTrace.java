@@ -0,0 +1,54 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Binary trace of the engine events that drive what the watch face draws, recorded on the watch
+ * by {@link EventTraceWriter} and replayed off-device by {@link TraceReplay}.
+ * <p>
+ * The file starts with {@link #MAGIC}, a version byte and the start time in epoch millis. Each
+ * record is a type byte, the time since the previous record as a varint, then the type's
+ * arguments as varints: a flag for the boolean events, tap type, x and y for taps, and
+ * complication id and data type for complication updates. A typical record is 3 to 8 bytes.
+ */
+public final class EventTrace {
+    public static final int MAGIC = 0x41415754;
+    public static final int VERSION = 1;
+
+    public static final int TYPE_VISIBILITY = 1;
+    public static final int TYPE_AMBIENT = 2;
+    public static final int TYPE_TAP = 3;
+    public static final int TYPE_COMPLICATION_DATA = 4;
+    public static final int TYPE_PEER = 5;
+
+    private EventTrace() {
+    }
+
+    /* Number of varint arguments stored for an event type. */
+    static int argumentCount(int type) {
+        switch (type) {
+            case TYPE_VISIBILITY:
+            case TYPE_AMBIENT:
+            case TYPE_PEER:
+                return 1;
+            case TYPE_TAP:
+                return 3;
+            case TYPE_COMPLICATION_DATA:
+                return 2;
+            default:
+                throw new IllegalArgumentException("Unknown event type " + type);
+        }
+    }
+
+    /** One decoded record. Reused by {@link EventTraceReader} for every record it reads. */
+    public static final class Event {
+        public int type;
+        public long timeMillis;
+        /* Arguments in record order; booleans are stored as 0 or 1 in a. */
+        public int a;
+        public int b;
+        public int c;
+
+        public boolean flag() {
+            return a != 0;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the records written by {@link EventTraceWriter}. A trace cut short by the process dying
+ * mid-record ends at the last complete record.
+ */
+public final class EventTraceReader implements Closeable {
+    private final DataInputStream mIn;
+    private final long mStartTimeMillis;
+    private final EventTrace.Event mEvent = new EventTrace.Event();
+    private long mTimeMillis;
+
+    public EventTraceReader(InputStream in) throws IOException {
+        mIn = new DataInputStream(new BufferedInputStream(in));
+        if (mIn.readInt() != EventTrace.MAGIC) {
+            throw new IOException("Not an engine event trace");
+        }
+        int version = mIn.readUnsignedByte();
+        if (version != EventTrace.VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+        mStartTimeMillis = mIn.readLong();
+        mTimeMillis = mStartTimeMillis;
+    }
+
+    public long getStartTimeMillis() {
+        return mStartTimeMillis;
+    }
+
+    /* Returns the next record, reusing the same Event instance, or null at the end of the trace. */
+    public EventTrace.Event next() throws IOException {
+        int type = mIn.read();
+        if (type == -1) {
+            return null;
+        }
+        int count;
+        try {
+            count = EventTrace.argumentCount(type);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        try {
+            long timeMillis = mTimeMillis + readVarint();
+            mEvent.a = (int) readVarint();
+            mEvent.b = (count > 1) ? (int) readVarint() : 0;
+            mEvent.c = (count > 2) ? (int) readVarint() : 0;
+            mEvent.type = type;
+            mEvent.timeMillis = timeMillis;
+            mTimeMillis = timeMillis;
+            return mEvent;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        mIn.close();
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = mIn.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
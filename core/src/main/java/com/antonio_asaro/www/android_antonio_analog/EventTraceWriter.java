@@ -0,0 +1,81 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Appends {@link EventTrace} records to a stream. Not thread-safe; the engine writes from its
+ * own thread only.
+ */
+public final class EventTraceWriter implements Closeable {
+    private final OutputStream mOut;
+    private long mLastTimeMillis;
+    private long mBytesWritten;
+
+    public EventTraceWriter(OutputStream out, long startTimeMillis) throws IOException {
+        mOut = new BufferedOutputStream(out);
+        writeInt(EventTrace.MAGIC);
+        mOut.write(EventTrace.VERSION);
+        writeLong(startTimeMillis);
+        mBytesWritten = 13;
+        mLastTimeMillis = startTimeMillis;
+    }
+
+    public void write(int type, long timeMillis, boolean flag) throws IOException {
+        write(type, timeMillis, flag ? 1 : 0, 0, 0);
+    }
+
+    /* Unused arguments for the event type are ignored. Arguments must not be negative. */
+    public void write(int type, long timeMillis, int a, int b, int c) throws IOException {
+        int count = EventTrace.argumentCount(type);
+        mOut.write(type);
+        mBytesWritten++;
+        /* A clock set backwards is recorded as no time passing, keeping deltas unsigned. */
+        writeVarint(Math.max(0, timeMillis - mLastTimeMillis));
+        mLastTimeMillis = Math.max(mLastTimeMillis, timeMillis);
+        writeVarint(a);
+        if (count > 1) {
+            writeVarint(b);
+        }
+        if (count > 2) {
+            writeVarint(c);
+        }
+    }
+
+    public long getBytesWritten() {
+        return mBytesWritten;
+    }
+
+    public void flush() throws IOException {
+        mOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mOut.close();
+    }
+
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            mOut.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+            mBytesWritten++;
+        }
+        mOut.write((int) value);
+        mBytesWritten++;
+    }
+
+    private void writeInt(int value) throws IOException {
+        mOut.write(value >>> 24);
+        mOut.write(value >>> 16);
+        mOut.write(value >>> 8);
+        mOut.write(value);
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+}
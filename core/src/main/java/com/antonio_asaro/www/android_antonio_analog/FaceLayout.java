@@ -0,0 +1,177 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Position and size of every element of the face, derived once per surface size from the
+ * original 400 px design and stored in one flat table. Draw stages read their coordinates
+ * straight from {@link #table} by index, so no layout arithmetic happens per frame, and tap
+ * hit-testing reads the same complication bounds that are drawn.
+ * <p>
+ * Rectangles take four consecutive entries (left, top, right, bottom) and points two (x, y).
+ */
+public final class FaceLayout {
+    /* Surface width the original coordinates were designed for. */
+    public static final float REFERENCE_SIZE = 400f;
+
+    public static final int SCALE = 0;
+    public static final int CENTER_X = 1;
+    public static final int CENTER_Y = 2;
+
+    /* Complication slot i occupies the four entries starting at COMPLICATIONS + 4 * i. */
+    public static final int COMPLICATIONS = 3;
+    public static final int COMPLICATION_COUNT = 3;
+
+    public static final int BATTERY_CAP = COMPLICATIONS + 4 * COMPLICATION_COUNT;
+    public static final int BATTERY_BODY = BATTERY_CAP + 4;
+    /* Left, top and right of the drained part; its bottom is top + the drained height. */
+    public static final int BATTERY_EMPTY = BATTERY_BODY + 4;
+    public static final int BATTERY_EMPTY_MAX_HEIGHT = BATTERY_EMPTY + 3;
+    public static final int BATTERY_BOUNDS = BATTERY_EMPTY_MAX_HEIGHT + 1;
+
+    /* Digital time origin, for single and double digit hours, interactive and ambient. */
+    public static final int TIME_X_SHORT = BATTERY_BOUNDS + 4;
+    public static final int TIME_X_LONG = TIME_X_SHORT + 1;
+    public static final int TIME_Y = TIME_X_LONG + 1;
+    public static final int TIME_Y_AMBIENT = TIME_Y + 1;
+    public static final int TIME_TEXT_SIZE = TIME_Y_AMBIENT + 1;
+
+    public static final int DAY_DATE = TIME_TEXT_SIZE + 1;
+    public static final int DAY_DATE_TEXT_SIZE = DAY_DATE + 2;
+
+    public static final int DISCONNECT_BADGE = DAY_DATE_TEXT_SIZE + 1;
+    public static final int DISCONNECT_ICON = DISCONNECT_BADGE + 4;
+
+    public static final int SATURN = DISCONNECT_ICON + 2;
+    public static final int EARTH = SATURN + 2;
+    public static final int MARVIN = EARTH + 2;
+    public static final int COMET = MARVIN + 2;
+
+    public static final int NUMERAL_12 = COMET + 2;
+    public static final int NUMERAL_3 = NUMERAL_12 + 2;
+    public static final int NUMERAL_6 = NUMERAL_3 + 2;
+    public static final int NUMERAL_9 = NUMERAL_6 + 2;
+    public static final int NUMERAL_TEXT_SIZE = NUMERAL_9 + 2;
+
+    /* Tick radii, measured from the dial center. */
+    public static final int TICK_OUTER_RADIUS = NUMERAL_TEXT_SIZE + 1;
+    public static final int HOUR_TICK_INNER_RADIUS = TICK_OUTER_RADIUS + 1;
+    public static final int CARDINAL_TICK_INNER_RADIUS = HOUR_TICK_INNER_RADIUS + 1;
+    public static final int MINUTE_TICK_INNER_RADIUS = CARDINAL_TICK_INNER_RADIUS + 1;
+
+    /* Hand radii, measured from the dial center; the second hand's tail is negative. */
+    public static final int HOUR_HAND_LENGTH = MINUTE_TICK_INNER_RADIUS + 1;
+    public static final int MINUTE_HAND_LENGTH = HOUR_HAND_LENGTH + 1;
+    public static final int SECOND_HAND_LENGTH = MINUTE_HAND_LENGTH + 1;
+    public static final int HAND_INNER_RADIUS = SECOND_HAND_LENGTH + 1;
+    public static final int SECOND_HAND_TAIL = HAND_INNER_RADIUS + 1;
+    public static final int HUB_RING_OFFSET = SECOND_HAND_TAIL + 1;
+    public static final int HUB_RING_RADIUS = HUB_RING_OFFSET + 1;
+    public static final int HUB_RING_STROKE_WIDTH = HUB_RING_RADIUS + 1;
+    public static final int CENTER_DOT_RADIUS = HUB_RING_STROKE_WIDTH + 1;
+
+    public static final int HOUR_STROKE_WIDTH = CENTER_DOT_RADIUS + 1;
+    public static final int MINUTE_STROKE_WIDTH = HOUR_STROKE_WIDTH + 1;
+    public static final int SECOND_STROKE_WIDTH = MINUTE_STROKE_WIDTH + 1;
+    public static final int SHADOW_RADIUS = SECOND_STROKE_WIDTH + 1;
+
+    public static final int SIZE = SHADOW_RADIUS + 1;
+
+    public final float[] table = new float[SIZE];
+
+    public FaceLayout() {
+        compute((int) REFERENCE_SIZE, (int) REFERENCE_SIZE);
+    }
+
+    /*
+     * Fills the table for a surface. Positions scale with the surface width, like the
+     * background image; the dial is centered on the whole surface, ignoring any chin.
+     */
+    public void compute(int width, int height) {
+        float scale = width / REFERENCE_SIZE;
+        float centerX = width / 2f;
+        float centerY = height / 2f;
+        table[SCALE] = scale;
+        table[CENTER_X] = centerX;
+        table[CENTER_Y] = centerY;
+
+        rect(COMPLICATIONS, scale, 64, 144, 160, 240);
+        rect(COMPLICATIONS + 4, scale, 153, 232, 249, 328);
+        rect(COMPLICATIONS + 8, scale, 241, 144, 337, 240);
+
+        rect(BATTERY_CAP, scale, 191, 65, 207, 75);
+        rect(BATTERY_BODY, scale, 188, 70, 212, 110);
+        point(BATTERY_EMPTY, scale, 190, 74);
+        table[BATTERY_EMPTY + 2] = 210 * scale;
+        table[BATTERY_EMPTY_MAX_HEIGHT] = 36 * scale;
+        rect(BATTERY_BOUNDS, scale, 188, 65, 212, 112);
+
+        table[TIME_X_SHORT] = 171 * scale;
+        table[TIME_X_LONG] = 156 * scale;
+        table[TIME_Y] = 154 * scale;
+        table[TIME_Y_AMBIENT] = 134 * scale;
+        table[TIME_TEXT_SIZE] = 36 * scale;
+
+        point(DAY_DATE, scale, 128, 112);
+        table[DAY_DATE_TEXT_SIZE] = 32 * scale;
+
+        rect(DISCONNECT_BADGE, scale, 176, 60, 224, 116);
+        point(DISCONNECT_ICON, scale, 182, 68);
+
+        point(SATURN, scale, 124, 74);
+        point(EARTH, scale, 240, 62);
+        point(MARVIN, scale, 72, 252);
+        point(COMET, scale, 272, 276);
+
+        table[NUMERAL_12] = centerX - 26 * scale;
+        table[NUMERAL_12 + 1] = centerY - 148 * scale;
+        table[NUMERAL_3] = centerX + 154 * scale;
+        table[NUMERAL_3 + 1] = centerY + 16 * scale;
+        table[NUMERAL_6] = centerX - 14 * scale;
+        table[NUMERAL_6 + 1] = centerY + 180 * scale;
+        table[NUMERAL_9] = centerX - 176 * scale;
+        table[NUMERAL_9 + 1] = centerY + 16 * scale;
+        table[NUMERAL_TEXT_SIZE] = 48 * scale;
+
+        table[TICK_OUTER_RADIUS] = centerX;
+        table[HOUR_TICK_INNER_RADIUS] = centerX - 32 * scale;
+        table[CARDINAL_TICK_INNER_RADIUS] = centerX - 12 * scale;
+        table[MINUTE_TICK_INNER_RADIUS] = centerX - 10 * scale;
+
+        table[HOUR_HAND_LENGTH] = centerX * 0.5f;
+        table[MINUTE_HAND_LENGTH] = centerX * 0.70f;
+        table[SECOND_HAND_LENGTH] = centerX * 0.875f;
+        table[HAND_INNER_RADIUS] = 20 * scale;
+        table[SECOND_HAND_TAIL] = -20 * scale;
+        table[HUB_RING_OFFSET] = 2 * scale;
+        table[HUB_RING_RADIUS] = 12 * scale;
+        table[HUB_RING_STROKE_WIDTH] = 4 * scale;
+        table[CENTER_DOT_RADIUS] = 8 * scale;
+
+        table[HOUR_STROKE_WIDTH] = 12 * scale;
+        table[MINUTE_STROKE_WIDTH] = 10 * scale;
+        table[SECOND_STROKE_WIDTH] = 2 * scale;
+        table[SHADOW_RADIUS] = 6 * scale;
+    }
+
+    /* Returns the complication slot containing (x, y), or -1. */
+    public int findComplication(int x, int y) {
+        for (int slot = 0; slot < COMPLICATION_COUNT; slot++) {
+            int index = COMPLICATIONS + 4 * slot;
+            if (x >= table[index] && x < table[index + 2] && y >= table[index + 1] && y < table[index + 3]) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private void rect(int index, float scale, float left, float top, float right, float bottom) {
+        table[index] = left * scale;
+        table[index + 1] = top * scale;
+        table[index + 2] = right * scale;
+        table[index + 3] = bottom * scale;
+    }
+
+    private void point(int index, float scale, float x, float y) {
+        table[index] = x * scale;
+        table[index + 1] = y * scale;
+    }
+}
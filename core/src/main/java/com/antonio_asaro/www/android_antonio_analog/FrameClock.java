@@ -0,0 +1,79 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import java.util.TimeZone;
+
+/**
+ * Snapshot of the wall-clock time taken once per frame, so every draw stage sees the same
+ * instant without going through {@link java.util.Calendar}. All fields are primitives and
+ * {@link #update} does not allocate.
+ * <p>
+ * The zone offset is looked up at most once per quarter hour: every zone's offset changes on a
+ * 15 minute UTC boundary, so a cached offset stays valid until the next one. A time zone change
+ * has to be reported with {@link #setTimeZone}.
+ */
+public final class FrameClock {
+    private static final long SECOND_MS = 1000;
+    private static final long QUARTER_HOUR_MS = 15 * 60 * 1000;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000;
+
+    public long epochMillis;
+    /* Local time of day; hour is 0-23, hour12 is 0-11 as on the dial. */
+    public int hour;
+    public int hour12;
+    public int minute;
+    public int second;
+    public int millisecond;
+    /* Days since the epoch in local time; changes at local midnight. */
+    public long localDay;
+    /* Hand angles for this instant, see HandAngles. */
+    public final HandAngles angles = new HandAngles();
+
+    private TimeZone mTimeZone;
+    private int mZoneOffsetMillis;
+    private long mZoneOffsetValidFrom = Long.MAX_VALUE;
+    private long mZoneOffsetValidUntil = Long.MIN_VALUE;
+
+    public FrameClock(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    public void setTimeZone(TimeZone timeZone) {
+        mTimeZone = timeZone;
+        mZoneOffsetValidFrom = Long.MAX_VALUE;
+        mZoneOffsetValidUntil = Long.MIN_VALUE;
+    }
+
+    /**
+     * Takes the snapshot for {@code nowMillis}. With {@code sweeping} the second hand angle
+     * includes the milliseconds, otherwise it moves in whole seconds.
+     */
+    public void update(long nowMillis, boolean sweeping) {
+        epochMillis = nowMillis;
+        if (nowMillis < mZoneOffsetValidFrom || nowMillis >= mZoneOffsetValidUntil) {
+            mZoneOffsetMillis = mTimeZone.getOffset(nowMillis);
+            mZoneOffsetValidFrom = floor(nowMillis, QUARTER_HOUR_MS);
+            mZoneOffsetValidUntil = mZoneOffsetValidFrom + QUARTER_HOUR_MS;
+        }
+
+        long localMillis = nowMillis + mZoneOffsetMillis;
+        localDay = floor(localMillis, DAY_MS) / DAY_MS;
+        int millisOfDay = (int) (localMillis - localDay * DAY_MS);
+        hour = millisOfDay / (60 * 60 * 1000);
+        hour12 = hour % 12;
+        minute = millisOfDay / (60 * 1000) % 60;
+        second = (int) (millisOfDay / SECOND_MS % 60);
+        millisecond = (int) (millisOfDay % SECOND_MS);
+
+        float seconds = sweeping ? second + millisecond / 1000f : second;
+        angles.update(hour12, minute, seconds);
+    }
+
+    public int getZoneOffsetMillis() {
+        return mZoneOffsetMillis;
+    }
+
+    private static long floor(long value, long period) {
+        long remainder = value % period;
+        return (remainder < 0) ? value - remainder - period : value - remainder;
+    }
+}
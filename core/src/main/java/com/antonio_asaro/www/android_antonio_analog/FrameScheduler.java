@@ -0,0 +1,73 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Works out when the interactive watch face will next look different, so the engine can sleep
+ * until then instead of redrawing on a fixed period. Two things move on their own: the second
+ * hand, at the resolution of the selected {@link Mode}, and the digital "h:mm" text together
+ * with the hour and minute hands, on every minute boundary.
+ */
+public final class FrameScheduler {
+    public static final long MINUTE_MS = 60 * 1000;
+
+    /** How the second hand advances in interactive mode. */
+    public enum Mode {
+        /* Sweeping second hand, redrawn at roughly 30 fps. */
+        SMOOTH(33),
+        /* Classic ticking second hand, redrawn once a second. */
+        TICK(1000),
+        /* No second hand; the face only changes on the minute. */
+        ECO(MINUTE_MS);
+
+        public final long stepMs;
+
+        Mode(long stepMs) {
+            this.stepMs = stepMs;
+        }
+    }
+
+    private Mode mMode = Mode.SMOOTH;
+    private long mWakeupCount;
+
+    public Mode getMode() {
+        return mMode;
+    }
+
+    /* Returns true if the mode changed, which restarts the wakeup count. */
+    public boolean setMode(Mode mode) {
+        if (mMode == mode) {
+            return false;
+        }
+        mMode = mode;
+        mWakeupCount = 0;
+        return true;
+    }
+
+    public boolean showsSecondHand() {
+        return mMode != Mode.ECO;
+    }
+
+    /* Whether the second hand moves continuously rather than in whole seconds. */
+    public boolean isSweeping() {
+        return mMode == Mode.SMOOTH;
+    }
+
+    /**
+     * Returns the delay from {@code nowMillis} until the next moment the drawn output changes:
+     * the next second hand step or the next minute boundary, whichever comes first.
+     */
+    public long nextFrameDelay(long nowMillis) {
+        mWakeupCount++;
+        long nextStep = nextBoundary(nowMillis, mMode.stepMs);
+        long nextMinute = nextBoundary(nowMillis, MINUTE_MS);
+        return Math.min(nextStep, nextMinute) - nowMillis;
+    }
+
+    /* Number of scheduled wakeups in the current mode, to compare modes. */
+    public long getWakeupCount() {
+        return mWakeupCount;
+    }
+
+    private static long nextBoundary(long nowMillis, long periodMs) {
+        return nowMillis - (nowMillis % periodMs) + periodMs;
+    }
+}
@@ -0,0 +1,23 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Angles of the three hands for one point in time, as {@link SineTable} indices. The hour hand
+ * advances with the minutes, half a degree per minute, and the second hand sweeps through
+ * fractional seconds when the caller passes them.
+ */
+public final class HandAngles {
+    public int hour;
+    public int minute;
+    public int second;
+
+    /* hour12 is 0-11, seconds may carry a fraction for a sweeping second hand. */
+    public void update(int hour12, int minute, float seconds) {
+        /*
+         * These calculations reflect the rotation in degrees per unit of time, e.g.,
+         * 360 / 60 = 6 and 360 / 12 = 30.
+         */
+        this.hour = SineTable.indexOf(hour12 * 30 + minute / 2f);
+        this.minute = SineTable.indexOf(minute * 6f);
+        this.second = SineTable.indexOf(seconds * 6f);
+    }
+}
@@ -0,0 +1,41 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Counts the lit pixels of a rendered frame, the measure of OLED display power used for the
+ * ambient budget: every pixel that is not black draws current, however dim. Works on ARGB pixel
+ * rows as returned by {@code Bitmap.getPixels}, so the same check runs on the device and on the
+ * JVM against pixels from a rendered bitmap.
+ * <p>
+ * A frame is estimated from every {@link #SAMPLE_ROW_STEP}th row rather than read in full, as
+ * reading pixels back is the expensive part; see {@link #sampleRow}.
+ */
+public final class LitPixels {
+    /* One row in this many is read for an estimate. */
+    public static final int SAMPLE_ROW_STEP = 8;
+
+    private LitPixels() {
+    }
+
+    /* Number of pixels in argb[offset, offset + length) that light up over a black screen. */
+    public static int count(int[] argb, int offset, int length) {
+        int lit = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int pixel = argb[i];
+            /* Transparent pixels show the black behind them, whatever their colour bits. */
+            if ((pixel & 0xFF000000) != 0 && (pixel & 0x00FFFFFF) != 0) {
+                lit++;
+            }
+        }
+        return lit;
+    }
+
+    /* Number of rows sampled from a frame of the given height. */
+    public static int sampleRowCount(int height) {
+        return (height + SAMPLE_ROW_STEP / 2 - 1) / SAMPLE_ROW_STEP;
+    }
+
+    /* The y of the index-th sampled row: the middle row of each step, so no edge is favoured. */
+    public static int sampleRow(int index) {
+        return SAMPLE_ROW_STEP / 2 + index * SAMPLE_ROW_STEP;
+    }
+}
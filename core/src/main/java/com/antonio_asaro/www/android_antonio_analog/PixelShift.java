@@ -0,0 +1,31 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Burn-in protection schedule: the ambient face is moved by up to {@code maxShift} pixels each
+ * way, one step per minute, so no pixel stays lit in the same place. The steps walk around a
+ * 3 x 3 grid one neighbour at a time, which keeps each move small enough to go unnoticed.
+ */
+public final class PixelShift {
+    /* Grid positions in walking order, as x and y multiples of maxShift. */
+    private static final int[] STEPS_X = {0, 1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] STEPS_Y = {0, 0, 1, 1, 1, 0, -1, -1, -1};
+
+    public static final int PERIOD_MINUTES = STEPS_X.length;
+
+    private PixelShift() {
+    }
+
+    /* minute counts minutes since the epoch, so the schedule does not depend on when it starts. */
+    public static int offsetX(long minute, int maxShift) {
+        return STEPS_X[step(minute)] * maxShift;
+    }
+
+    public static int offsetY(long minute, int maxShift) {
+        return STEPS_Y[step(minute)] * maxShift;
+    }
+
+    private static int step(long minute) {
+        int step = (int) (minute % PERIOD_MINUTES);
+        return (step < 0) ? step + PERIOD_MINUTES : step;
+    }
+}
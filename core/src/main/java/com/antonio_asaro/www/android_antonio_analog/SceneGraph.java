@@ -0,0 +1,118 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Retained scene of the watch face: a fixed set of nodes, drawn in id order, each keeping a
+ * recording of its content that is replayed frame after frame. The events that change a node
+ * mark it dirty with {@link #invalidate(int)}. A dirty node is recorded again the next time it is
+ * drawn, at most once per frame, and every other node just replays. Nodes entirely outside the
+ * frame's clip are skipped.
+ * <p>
+ * The scene is generic in its drawing target and knows nothing of Android, so it can be driven
+ * headlessly with a recording target in place of a Canvas.
+ */
+public final class SceneGraph<T> {
+    /** One element of the face. */
+    public interface Node<T> {
+        /* Captures the node's current content; only called while the node is dirty. */
+        void record();
+
+        /* Replays the last recording onto the target. */
+        void draw(T target);
+    }
+
+    private final Object[] mNodes;
+    /* Left, top, right and bottom per node; an empty node is never drawn. */
+    private final int[] mBounds;
+    private final boolean[] mDirty;
+    private int mClipLeft;
+    private int mClipTop;
+    private int mClipRight;
+    private int mClipBottom;
+
+    private long mRecordCount;
+    private long mReplayCount;
+
+    public SceneGraph(int nodeCount) {
+        mNodes = new Object[nodeCount];
+        mBounds = new int[4 * nodeCount];
+        mDirty = new boolean[nodeCount];
+    }
+
+    /* A new node starts dirty. */
+    public void setNode(int id, Node<T> node) {
+        mNodes[id] = node;
+        mDirty[id] = true;
+    }
+
+    public void setBounds(int id, int left, int top, int right, int bottom) {
+        mBounds[4 * id] = left;
+        mBounds[4 * id + 1] = top;
+        mBounds[4 * id + 2] = right;
+        mBounds[4 * id + 3] = bottom;
+    }
+
+    public void invalidate(int id) {
+        mDirty[id] = true;
+    }
+
+    /* E.g. after a mode or surface change, which affects every node. */
+    public void invalidateAll() {
+        for (int i = 0; i < mDirty.length; i++) {
+            mDirty[i] = true;
+        }
+    }
+
+    /* Whether the node will be recorded again when next drawn. */
+    public boolean isDirty(int id) {
+        return mDirty[id];
+    }
+
+    /* The area of the frame being redrawn; nodes outside it are skipped until it changes. */
+    public void setClip(int left, int top, int right, int bottom) {
+        mClipLeft = left;
+        mClipTop = top;
+        mClipRight = right;
+        mClipBottom = bottom;
+    }
+
+    /*
+     * Draws the nodes from first up to end, exclusive, that reach into the clip, recording the
+     * dirty ones first. Drawing the scene in ranges lets the caller time groups of nodes.
+     */
+    @SuppressWarnings("unchecked")
+    public void draw(T target, int first, int end) {
+        for (int id = first; id < end; id++) {
+            Node<T> node = (Node<T>) mNodes[id];
+            if (node == null || !intersectsClip(id)) {
+                continue;
+            }
+            if (mDirty[id]) {
+                node.record();
+                mDirty[id] = false;
+                mRecordCount++;
+            } else {
+                mReplayCount++;
+            }
+            node.draw(target);
+        }
+    }
+
+    /* Nodes recorded again before being drawn, since the scene was created. */
+    public long getRecordCount() {
+        return mRecordCount;
+    }
+
+    /* Nodes drawn from an unchanged recording. */
+    public long getReplayCount() {
+        return mReplayCount;
+    }
+
+    private boolean intersectsClip(int id) {
+        int left = mBounds[4 * id];
+        int top = mBounds[4 * id + 1];
+        int right = mBounds[4 * id + 2];
+        int bottom = mBounds[4 * id + 3];
+        return left < right && top < bottom
+                && left < mClipRight && mClipLeft < right && top < mClipBottom && mClipTop < bottom;
+    }
+}
@@ -0,0 +1,37 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Shared sine lookup table used for tick and hand geometry, so that no trigonometry runs on the
+ * drawing path. Angles are expressed in degrees clockwise from 12 o'clock and quantized to
+ * {@link #STEPS_PER_DEGREE} steps per degree, which is finer than a sweeping second hand moves
+ * between two frames.
+ */
+public final class SineTable {
+    public static final int STEPS_PER_DEGREE = 10;
+    public static final int SIZE = 360 * STEPS_PER_DEGREE;
+
+    private static final float[] SINE = new float[SIZE];
+
+    static {
+        for (int i = 0; i < SIZE; i++) {
+            SINE[i] = (float) Math.sin(i * 2 * Math.PI / SIZE);
+        }
+    }
+
+    private SineTable() {
+    }
+
+    /* Returns the table index for a rotation in degrees, wrapping to [0, SIZE). */
+    public static int indexOf(float degrees) {
+        int index = (int) (degrees * STEPS_PER_DEGREE + 0.5f) % SIZE;
+        return (index < 0) ? index + SIZE : index;
+    }
+
+    public static float sin(int index) {
+        return SINE[index];
+    }
+
+    public static float cos(int index) {
+        return SINE[(index + SIZE / 4) % SIZE];
+    }
+}
@@ -0,0 +1,56 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Precomputed end points of the dial ticks, laid out as flat {@code x0, y0, x1, y1} quadruples
+ * so each set can be drawn with a single {@code Canvas.drawLines()} call. The
+ * geometry only depends on the dial center and radii, so it is rebuilt when the surface changes
+ * size.
+ */
+public final class TickGeometry {
+    private static final int HOUR_TICKS = 12;
+    private static final int MINUTE_TICKS = 60;
+
+    public final float[] hourTicks = new float[HOUR_TICKS * 4];
+    public final float[] minuteTicks = new float[MINUTE_TICKS * 4];
+
+    private float mCenterX = Float.NaN;
+    private float mCenterY = Float.NaN;
+    private float mOuterRadius = Float.NaN;
+
+    /**
+     * Recomputes the tick tables for a new dial center and outer radius, reading the inner
+     * radii from the layout. Returns false, without touching the tables, if neither changed.
+     */
+    public boolean update(float centerX, float centerY, float[] layout) {
+        float outerTickRadius = layout[FaceLayout.TICK_OUTER_RADIUS];
+        if (centerX == mCenterX && centerY == mCenterY && outerTickRadius == mOuterRadius) {
+            return false;
+        }
+        mCenterX = centerX;
+        mCenterY = centerY;
+        mOuterRadius = outerTickRadius;
+
+        for (int tickIndex = 0; tickIndex < HOUR_TICKS; tickIndex++) {
+            /* The 12, 3, 6 and 9 o'clock ticks are shortened to make room for the numerals. */
+            float innerTickRadius = (tickIndex % 3 == 0)
+                    ? layout[FaceLayout.CARDINAL_TICK_INNER_RADIUS] : layout[FaceLayout.HOUR_TICK_INNER_RADIUS];
+            fill(hourTicks, tickIndex, tickIndex * 360 / HOUR_TICKS, innerTickRadius, outerTickRadius);
+        }
+        for (int tickIndex = 0; tickIndex < MINUTE_TICKS; tickIndex++) {
+            fill(minuteTicks, tickIndex, tickIndex * 360 / MINUTE_TICKS,
+                    layout[FaceLayout.MINUTE_TICK_INNER_RADIUS], outerTickRadius);
+        }
+        return true;
+    }
+
+    private void fill(float[] ticks, int tickIndex, int degrees, float innerRadius, float outerRadius) {
+        int angle = SineTable.indexOf(degrees);
+        float sin = SineTable.sin(angle);
+        float cos = SineTable.cos(angle);
+        int offset = tickIndex * 4;
+        ticks[offset] = mCenterX + sin * innerRadius;
+        ticks[offset + 1] = mCenterY - cos * innerRadius;
+        ticks[offset + 2] = mCenterX + sin * outerRadius;
+        ticks[offset + 3] = mCenterY - cos * outerRadius;
+    }
+}
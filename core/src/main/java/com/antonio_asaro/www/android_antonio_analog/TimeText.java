@@ -0,0 +1,29 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+/**
+ * Allocation-free formatting of the digital "h:mm" time into a reusable char buffer, replacing
+ * {@code String.format("%d:%02d", ...)} on the drawing path.
+ */
+public final class TimeText {
+    /* Longest possible result, "12:59". */
+    public static final int MAX_LENGTH = 5;
+
+    private TimeText() {
+    }
+
+    /**
+     * Writes {@code hour:minute} into {@code buffer}, without leading zero on the hour, and
+     * returns the number of chars written.
+     */
+    public static int formatHourMinute(char[] buffer, int hour, int minute) {
+        int length = 0;
+        if (hour > 9) {
+            buffer[length++] = (char) ('0' + hour / 10);
+        }
+        buffer[length++] = (char) ('0' + hour % 10);
+        buffer[length++] = ':';
+        buffer[length++] = (char) ('0' + minute / 10);
+        buffer[length++] = (char) ('0' + minute % 10);
+        return length;
+    }
+}
@@ -0,0 +1,68 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import java.io.IOException;
+
+/**
+ * Replays an {@link EventTrace} on the engine's timeline: between two events it emits the frames
+ * the engine would have drawn, using {@link FrameScheduler} in interactive mode and one frame per
+ * minute in ambient mode, and it emits one frame for every event that invalidates a visible face.
+ * Replay stops at the last recorded event.
+ */
+public final class TraceReplay {
+
+    /** Receives the replayed timeline. */
+    public interface Sink {
+        /* Called for every recorded event, before the frame it triggers. */
+        void onEvent(EventTrace.Event event);
+
+        void onFrame(long timeMillis, boolean ambient);
+    }
+
+    private TraceReplay() {
+    }
+
+    /* Returns the number of frames emitted. The face starts invisible and interactive. */
+    public static int replay(EventTraceReader reader, FrameScheduler scheduler, Sink sink) throws IOException {
+        boolean visible = false;
+        boolean ambient = false;
+        int frames = 0;
+        long nextFrameMillis = Long.MAX_VALUE;
+
+        EventTrace.Event event;
+        while ((event = reader.next()) != null) {
+            while (nextFrameMillis <= event.timeMillis) {
+                sink.onFrame(nextFrameMillis, ambient);
+                frames++;
+                nextFrameMillis = nextFrameAfter(nextFrameMillis, ambient, scheduler);
+            }
+
+            switch (event.type) {
+                case EventTrace.TYPE_VISIBILITY:
+                    visible = event.flag();
+                    break;
+                case EventTrace.TYPE_AMBIENT:
+                    ambient = event.flag();
+                    break;
+                default:
+                    break;
+            }
+            sink.onEvent(event);
+
+            if (visible) {
+                sink.onFrame(event.timeMillis, ambient);
+                frames++;
+                nextFrameMillis = nextFrameAfter(event.timeMillis, ambient, scheduler);
+            } else {
+                nextFrameMillis = Long.MAX_VALUE;
+            }
+        }
+        return frames;
+    }
+
+    private static long nextFrameAfter(long timeMillis, boolean ambient, FrameScheduler scheduler) {
+        if (ambient) {
+            return timeMillis - (timeMillis % FrameScheduler.MINUTE_MS) + FrameScheduler.MINUTE_MS;
+        }
+        return timeMillis + scheduler.nextFrameDelay(timeMillis);
+    }
+}
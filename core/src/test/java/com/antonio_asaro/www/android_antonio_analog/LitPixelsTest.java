@@ -0,0 +1,105 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import org.junit.Test;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks lit-pixel accounting against frames rendered with Java2D, whose ARGB rows have the
+ * layout {@code Bitmap.getPixels} returns on the watch.
+ */
+public class LitPixelsTest {
+    private static final int SIZE = 400;
+    /* R.integer.ambient_lit_pixel_budget_percent. */
+    private static final float BUDGET_RATIO = 0.15f;
+
+    @Test
+    public void countsOnlyOpaqueNonBlackPixels() {
+        int[] argb = {0xFF000000, 0x00FFFFFF, 0xFF010101, 0x80FFFFFF, 0xFFFFFFFF, 0x00000000};
+        assertEquals(3, LitPixels.count(argb, 0, argb.length));
+        assertEquals(1, LitPixels.count(argb, 4, 2));
+    }
+
+    @Test
+    public void samplesTheMiddleRowOfEveryStep() {
+        int rows = LitPixels.sampleRowCount(SIZE);
+        assertEquals(SIZE / LitPixels.SAMPLE_ROW_STEP, rows);
+        assertEquals(LitPixels.SAMPLE_ROW_STEP / 2, LitPixels.sampleRow(0));
+        assertTrue(LitPixels.sampleRow(rows - 1) < SIZE);
+        assertEquals(0, LitPixels.sampleRowCount(LitPixels.SAMPLE_ROW_STEP / 2));
+        assertEquals(1, LitPixels.sampleRowCount(LitPixels.SAMPLE_ROW_STEP / 2 + 1));
+    }
+
+    @Test
+    public void ambientOutlineFaceFitsTheBudget() {
+        BufferedImage frame = newFrame();
+        Graphics2D g = frame.createGraphics();
+        /* Ticks, hands and complication outlines in white, aliased as in ambient mode. */
+        g.setColor(Color.WHITE);
+        g.setStroke(new BasicStroke(3));
+        for (int tick = 0; tick < 12; tick++) {
+            double angle = Math.toRadians(tick * 30);
+            g.drawLine(200 + (int) (170 * Math.sin(angle)), 200 - (int) (170 * Math.cos(angle)),
+                    200 + (int) (190 * Math.sin(angle)), 200 - (int) (190 * Math.cos(angle)));
+        }
+        g.setStroke(new BasicStroke(6));
+        g.drawLine(200, 200, 290, 160);
+        g.setStroke(new BasicStroke(4));
+        g.drawLine(200, 200, 140, 50);
+        g.setStroke(new BasicStroke(2));
+        g.drawOval(60, 170, 60, 60);
+        g.drawOval(170, 260, 60, 60);
+        g.drawOval(280, 170, 60, 60);
+        g.dispose();
+
+        float full = fullRatio(frame);
+        assertTrue("lit ratio " + full, full > 0f && full < BUDGET_RATIO);
+        assertEquals(full, sampledRatio(frame), 0.01f);
+    }
+
+    @Test
+    public void grayBackgroundGoesOverTheBudget() {
+        BufferedImage frame = newFrame();
+        Graphics2D g = frame.createGraphics();
+        g.setColor(new Color(0x20, 0x20, 0x20));
+        g.fillOval(0, 0, SIZE, SIZE);
+        g.dispose();
+
+        float full = fullRatio(frame);
+        assertTrue("lit ratio " + full, full > BUDGET_RATIO);
+        assertEquals(Math.PI / 4, full, 0.01f);
+        assertEquals(full, sampledRatio(frame), 0.01f);
+    }
+
+    private static BufferedImage newFrame() {
+        BufferedImage frame = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = frame.createGraphics();
+        g.setColor(Color.BLACK);
+        g.fillRect(0, 0, SIZE, SIZE);
+        g.dispose();
+        return frame;
+    }
+
+    private static float fullRatio(BufferedImage frame) {
+        int[] argb = frame.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+        return (float) LitPixels.count(argb, 0, argb.length) / argb.length;
+    }
+
+    /* The way AmbientPowerBudget reads a frame on the watch. */
+    private static float sampledRatio(BufferedImage frame) {
+        int rows = LitPixels.sampleRowCount(SIZE);
+        int[] row = new int[SIZE];
+        int lit = 0;
+        for (int i = 0; i < rows; i++) {
+            frame.getRGB(0, LitPixels.sampleRow(i), SIZE, 1, row, 0, SIZE);
+            lit += LitPixels.count(row, 0, SIZE);
+        }
+        return (float) lit / (rows * SIZE);
+    }
+}
@@ -0,0 +1,155 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives a {@link SceneGraph} with a recording target in place of a Canvas: each node appends
+ * its recording to the target when drawn, so the target shows what was replayed and in which
+ * order, and each node counts its own recordings.
+ */
+public class SceneGraphTest {
+    private static final int NODE_COUNT = 3;
+
+    private static final class TestNode implements SceneGraph.Node<List<String>> {
+        final String name;
+        int records;
+        String recording;
+
+        TestNode(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void record() {
+            records++;
+            recording = name + records;
+        }
+
+        @Override
+        public void draw(List<String> target) {
+            target.add(recording);
+        }
+    }
+
+    private SceneGraph<List<String>> mScene;
+    private TestNode[] mNodes;
+    private List<String> mTarget;
+
+    @Before
+    public void setUp() {
+        mScene = new SceneGraph<>(NODE_COUNT);
+        mNodes = new TestNode[NODE_COUNT];
+        for (int i = 0; i < NODE_COUNT; i++) {
+            mNodes[i] = new TestNode("n" + i);
+            mScene.setNode(i, mNodes[i]);
+            /* Side by side, 10 wide. */
+            mScene.setBounds(i, 10 * i, 0, 10 * i + 10, 10);
+        }
+        mScene.setClip(0, 0, 10 * NODE_COUNT, 10);
+        mTarget = new ArrayList<>();
+    }
+
+    @Test
+    public void recordsNewNodesOnceThenReplays() {
+        for (int i = 0; i < NODE_COUNT; i++) {
+            assertTrue(mScene.isDirty(i));
+        }
+        mScene.draw(mTarget, 0, NODE_COUNT);
+        mScene.draw(mTarget, 0, NODE_COUNT);
+
+        assertEquals(listOf("n01", "n11", "n21", "n01", "n11", "n21"), mTarget);
+        for (int i = 0; i < NODE_COUNT; i++) {
+            assertEquals(1, mNodes[i].records);
+            assertFalse(mScene.isDirty(i));
+        }
+        assertEquals(NODE_COUNT, mScene.getRecordCount());
+        assertEquals(NODE_COUNT, mScene.getReplayCount());
+    }
+
+    @Test
+    public void recordsOnlyInvalidatedNodes() {
+        mScene.draw(mTarget, 0, NODE_COUNT);
+        mTarget.clear();
+
+        mScene.invalidate(1);
+        assertTrue(mScene.isDirty(1));
+        mScene.draw(mTarget, 0, NODE_COUNT);
+
+        assertEquals(listOf("n01", "n12", "n21"), mTarget);
+        assertEquals(1, mNodes[0].records);
+        assertEquals(2, mNodes[1].records);
+        assertEquals(1, mNodes[2].records);
+    }
+
+    @Test
+    public void invalidatingTwiceRecordsOnce() {
+        mScene.draw(mTarget, 0, NODE_COUNT);
+        mScene.invalidate(2);
+        mScene.invalidate(2);
+        mScene.draw(mTarget, 0, NODE_COUNT);
+        mScene.draw(mTarget, 0, NODE_COUNT);
+
+        assertEquals(2, mNodes[2].records);
+    }
+
+    @Test
+    public void invalidateAllRecordsEveryNode() {
+        mScene.draw(mTarget, 0, NODE_COUNT);
+        mScene.invalidateAll();
+        mScene.draw(mTarget, 0, NODE_COUNT);
+
+        for (int i = 0; i < NODE_COUNT; i++) {
+            assertEquals(2, mNodes[i].records);
+        }
+    }
+
+    @Test
+    public void skipsNodesOutsideTheClipAndKeepsThemDirty() {
+        mScene.setClip(10, 0, 20, 10);
+        mScene.draw(mTarget, 0, NODE_COUNT);
+
+        /* Bounds that only touch the clip's edges don't reach into it. */
+        assertEquals(listOf("n11"), mTarget);
+        assertEquals(0, mNodes[0].records);
+        assertTrue(mScene.isDirty(0));
+        assertTrue(mScene.isDirty(2));
+
+        mScene.setClip(0, 0, 10 * NODE_COUNT, 10);
+        mTarget.clear();
+        mScene.draw(mTarget, 0, NODE_COUNT);
+        assertEquals(listOf("n01", "n11", "n21"), mTarget);
+    }
+
+    @Test
+    public void skipsNodesWithEmptyBounds() {
+        mScene.setBounds(1, 10, 0, 10, 10);
+        mScene.draw(mTarget, 0, NODE_COUNT);
+
+        assertEquals(listOf("n01", "n21"), mTarget);
+        assertEquals(0, mNodes[1].records);
+    }
+
+    @Test
+    public void drawsOnlyTheRequestedRange() {
+        mScene.draw(mTarget, 1, NODE_COUNT);
+
+        assertEquals(listOf("n11", "n21"), mTarget);
+        assertTrue(mScene.isDirty(0));
+    }
+
+    private static List<String> listOf(String... items) {
+        List<String> list = new ArrayList<>();
+        for (String item : items) {
+            list.add(item);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,103 @@
+package com.antonio_asaro.www.android_antonio_analog;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays a fixed session through {@link TraceReplay}: shown in TICK mode, a complication
+ * update, three minutes in ambient, back to interactive, hidden. The frame counts are what the
+ * engine draws for that session, so a scheduling or invalidation change that adds frames shows
+ * up here.
+ */
+public class TraceReplayTest {
+    /* On a minute boundary, so ambient frames fall on whole minutes from the start. */
+    private static final long START_MILLIS = 25000000L * FrameScheduler.MINUTE_MS;
+
+    private static final class CountingSink implements TraceReplay.Sink {
+        int events;
+        int frames;
+        int ambientFrames;
+        long lastFrameMillis = -1;
+
+        @Override
+        public void onEvent(EventTrace.Event event) {
+            events++;
+        }
+
+        @Override
+        public void onFrame(long timeMillis, boolean ambient) {
+            assertTrue(timeMillis >= lastFrameMillis);
+            lastFrameMillis = timeMillis;
+            frames++;
+            if (ambient) {
+                ambientFrames++;
+            }
+        }
+    }
+
+    @Test
+    public void replaysTickSession() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventTraceWriter writer = new EventTraceWriter(bytes, START_MILLIS);
+        writer.write(EventTrace.TYPE_VISIBILITY, START_MILLIS, true);
+        writer.write(EventTrace.TYPE_COMPLICATION_DATA, START_MILLIS + 10000, 101, 3, 0);
+        writer.write(EventTrace.TYPE_AMBIENT, START_MILLIS + 30000, true);
+        writer.write(EventTrace.TYPE_AMBIENT, START_MILLIS + 180000, false);
+        writer.write(EventTrace.TYPE_VISIBILITY, START_MILLIS + 185000, false);
+        writer.close();
+
+        FrameScheduler scheduler = new FrameScheduler();
+        scheduler.setMode(FrameScheduler.Mode.TICK);
+        CountingSink sink = new CountingSink();
+        EventTraceReader reader = new EventTraceReader(new ByteArrayInputStream(bytes.toByteArray()));
+        int frames;
+        try {
+            frames = TraceReplay.replay(reader, scheduler, sink);
+        } finally {
+            reader.close();
+        }
+
+        assertEquals(5, sink.events);
+        /*
+         * One frame per event while visible, one per second for the 30 s and 5 s interactive,
+         * and one per minute boundary in ambient.
+         */
+        assertEquals(42, frames);
+        assertEquals(frames, sink.frames);
+        assertEquals(4, sink.ambientFrames);
+        assertEquals(START_MILLIS + 185000, sink.lastFrameMillis);
+    }
+
+    @Test
+    public void ecoModeOnlyWakesOnTheMinute() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        EventTraceWriter writer = new EventTraceWriter(bytes, START_MILLIS);
+        writer.write(EventTrace.TYPE_VISIBILITY, START_MILLIS, true);
+        writer.write(EventTrace.TYPE_VISIBILITY, START_MILLIS + 5 * FrameScheduler.MINUTE_MS, false);
+        writer.close();
+
+        FrameScheduler scheduler = new FrameScheduler();
+        scheduler.setMode(FrameScheduler.Mode.ECO);
+        CountingSink sink = new CountingSink();
+        EventTraceReader reader = new EventTraceReader(new ByteArrayInputStream(bytes.toByteArray()));
+        try {
+            TraceReplay.replay(reader, scheduler, sink);
+        } finally {
+            reader.close();
+        }
+
+        /*
+         * The frame when shown, then one per minute boundary; the last falls on the hiding
+         * event, which draws nothing itself. Every frame schedules the next.
+         */
+        assertEquals(6, sink.frames);
+        assertEquals(0, sink.ambientFrames);
+        assertEquals(6, scheduler.getWakeupCount());
+    }
+}